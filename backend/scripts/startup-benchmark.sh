@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+# Measures the time from JVM launch to the first successful GET /rooms/all.
+#
+#   scripts/startup-benchmark.sh default [runs]      plain jar from target/
+#   scripts/startup-benchmark.sh fast-start [runs]   AOT + CDS build from target/fast-start (mvn -Pfast-start package)
+#
+# The app needs its usual database settings (application.properties or SPRING_DATASOURCE_* variables).
+# PORT must match server.port; extra JVM flags can be passed in JAVA_OPTS.
+set -euo pipefail
+
+MODE=${1:-default}
+RUNS=${2:-5}
+PORT=${PORT:-8080}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+cd "$(dirname "$0")/.."
+
+case "$MODE" in
+  default)
+    CMD=("$JAVA" ${JAVA_OPTS:-} -jar target/zikhron-0.0.1-SNAPSHOT.jar)
+    ;;
+  fast-start)
+    CMD=("$JAVA" ${JAVA_OPTS:-} -XX:SharedArchiveFile=target/fast-start/application.jsa
+         -Dspring.aot.enabled=true -Dspring.profiles.active=fast-start
+         -jar target/fast-start/zikhron-0.0.1-SNAPSHOT.jar)
+    ;;
+  *)
+    echo "unknown mode: $MODE (expected default or fast-start)" >&2
+    exit 1
+    ;;
+esac
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+  start=$(date +%s%N)
+  "${CMD[@]}" > "target/startup-benchmark-$MODE-$run.log" 2>&1 &
+  pid=$!
+  until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/rooms/all")" = "200" ]; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "run $run: application exited, see target/startup-benchmark-$MODE-$run.log" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  results+=("$elapsed")
+  echo "run $run: ${elapsed} ms"
+done
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+echo "$MODE: median $(( sorted[RUNS / 2] )) ms, min ${sorted[0]} ms, max ${sorted[RUNS - 1]} ms over $RUNS runs"
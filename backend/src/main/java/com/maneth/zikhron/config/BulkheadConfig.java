@@ -0,0 +1,120 @@
+package com.maneth.zikhron.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.utils.Bulkhead;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+//Splits the Tomcat worker pool into compartments. Photo uploads (S3), logins (BCrypt), availability searches and bookings
+//each get their own semaphore bulkhead, so a slow bucket or a login storm only degrades its own endpoints.
+//Limits are app.bulkheads.<name>.max-concurrent / max-queued / max-wait-ms; requests over them get 503 straight away.
+//Inside the booking compartment BookingAdmissionControl adapts its own limit below the bulkhead's max-concurrent.
+@Configuration
+public class BulkheadConfig {
+
+    private record Compartment(HttpMethod method, String pattern, Bulkhead bulkhead) {
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> bulkheadFilter(Environment environment, MeterRegistry meterRegistry,
+                                                                        ObjectMapper objectMapper) {
+        Bulkhead upload = bulkhead("upload", 4, 4, 2000, environment, meterRegistry);
+        Bulkhead login = bulkhead("login", 8, 16, 500, environment, meterRegistry);
+        Bulkhead search = bulkhead("search", 48, 32, 100, environment, meterRegistry);
+        Bulkhead booking = bulkhead("booking", 24, 24, 500, environment, meterRegistry);
+
+        List<Compartment> compartments = List.of(
+                new Compartment(HttpMethod.POST, "/rooms/add", upload),
+                new Compartment(HttpMethod.PUT, "/rooms/update/**", upload),
+                new Compartment(HttpMethod.POST, "/auth/login", login),
+                new Compartment(HttpMethod.POST, "/auth/register", login),
+                new Compartment(HttpMethod.GET, "/rooms/available-rooms-by-date-and-type", search),
+                new Compartment(HttpMethod.GET, "/rooms/all-available-rooms", search),
+                new Compartment(HttpMethod.GET, "/rooms/search", search),
+                new Compartment(HttpMethod.POST, "/bookings/book-room/**", booking),
+                new Compartment(HttpMethod.POST, "/bookings/hold/**", booking)
+        );
+        AntPathMatcher pathMatcher = new AntPathMatcher();
+
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+                Bulkhead bulkhead = null;
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                for (Compartment compartment : compartments) {
+                    if (compartment.method().matches(request.getMethod()) && pathMatcher.match(compartment.pattern(), path)) {
+                        bulkhead = compartment.bulkhead();
+                        break;
+                    }
+                }
+
+                if (bulkhead == null) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                if (!bulkhead.tryEnter()) {
+                    reject(response, bulkhead, objectMapper);
+                    return;
+                }
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    bulkhead.exit();
+                }
+            }
+        };
+
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        //after Spring Security, so unauthenticated requests never take a slot
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+        return registration;
+    }
+
+    private static Bulkhead bulkhead(String name, int maxConcurrent, int maxQueued, long maxWaitMillis,
+                                     Environment environment, MeterRegistry meterRegistry) {
+        String prefix = "app.bulkheads." + name + ".";
+        Bulkhead bulkhead = new Bulkhead(name,
+                environment.getProperty(prefix + "max-concurrent", Integer.class, maxConcurrent),
+                environment.getProperty(prefix + "max-queued", Integer.class, maxQueued),
+                environment.getProperty(prefix + "max-wait-ms", Long.class, maxWaitMillis));
+
+        Gauge.builder("zikhron.bulkhead.active", bulkhead, Bulkhead::getActive).tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("zikhron.bulkhead.queued", bulkhead, Bulkhead::getQueued).tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("zikhron.bulkhead.limit", bulkhead, Bulkhead::getMaxConcurrent).tag("bulkhead", name).register(meterRegistry);
+        FunctionCounter.builder("zikhron.bulkhead.admitted", bulkhead, Bulkhead::getAdmitted).tag("bulkhead", name).register(meterRegistry);
+        FunctionCounter.builder("zikhron.bulkhead.rejected", bulkhead, Bulkhead::getRejected).tag("bulkhead", name).register(meterRegistry);
+        return bulkhead;
+    }
+
+    private static void reject(HttpServletResponse response, Bulkhead bulkhead, ObjectMapper objectMapper) throws IOException {
+        Response body = new Response();
+        body.setStatusCode(503);
+        body.setMessage("Too many " + bulkhead.getName() + " requests right now, please retry shortly");
+
+        response.setStatus(503);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        //CORS headers are normally added by Spring MVC, which a rejected request never reaches
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,18 @@
+package com.maneth.zikhron.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//Spring's default keeps the connection of the first transaction for the rest of the open-in-view request. That would
+//hold a pooled connection through S3 uploads, BCrypt and response writing, and with replica routing it would pin every
+//later transaction of the request to whichever database the first one used. Releasing it after each transaction
+//leaves only the transactions themselves holding connections.
+@Configuration
+public class ConnectionHandlingConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put("hibernate.connection.handling_mode", "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+}
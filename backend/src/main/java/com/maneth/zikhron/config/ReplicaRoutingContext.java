@@ -0,0 +1,74 @@
+package com.maneth.zikhron.config;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+//Read-your-writes bookkeeping for replica routing. Once a request has written, the rest of that request stays on the primary,
+//and so do the same caller's following requests for a short window, e.g. reading a booking right after saveBooking.
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+    private static final Map<String, Long> RECENT_WRITERS = new ConcurrentHashMap<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    static void markWrite(long stickyMillis) {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        String caller = currentCaller();
+        if (caller != null) {
+            RECENT_WRITERS.put(caller, System.currentTimeMillis() + stickyMillis);
+        }
+    }
+
+    //For reads whose result outlives the request, e.g. one that fills a cache: a replica can be up to max-lag-seconds
+    //behind, which is fine for one response but not for something kept for minutes. Unlike a write, this does not keep
+    //the rest of the request or the caller's next requests on the primary.
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean pinned = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (pinned == null) {
+                PINNED_TO_PRIMARY.remove();
+            } else {
+                PINNED_TO_PRIMARY.set(pinned);
+            }
+        }
+    }
+
+    static boolean isPinnedToPrimary() {
+        if (Boolean.TRUE.equals(PINNED_TO_PRIMARY.get())) {
+            return true;
+        }
+        String caller = currentCaller();
+        if (caller == null) {
+            return false;
+        }
+        Long until = RECENT_WRITERS.get(caller);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    static void clearRequest() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    static void purgeExpired() {
+        long now = System.currentTimeMillis();
+        RECENT_WRITERS.values().removeIf(until -> until <= now);
+    }
+
+    private static String currentCaller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,139 @@
+package com.maneth.zikhron.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Sends read-only transactions to a healthy replica (round robin) and everything else to the primary.
+//A replica is taken out of rotation when it cannot be reached or lags more than maxLagSeconds behind the primary;
+//with no healthy replica left, reads simply go to the primary.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<DataSource> replicas;
+    private volatile boolean[] healthy;
+    private final long maxLagSeconds;
+    private final long stickyMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagSeconds, long healthCheckMillis) {
+        this.replicas = replicas;
+        this.healthy = new boolean[replicas.size()];
+        this.maxLagSeconds = maxLagSeconds;
+        this.stickyMillis = TimeUnit.SECONDS.toMillis(maxLagSeconds) + healthCheckMillis;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, healthCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReplicaRoutingContext.markWrite(stickyMillis);
+            return PRIMARY;
+        }
+        if (ReplicaRoutingContext.isPinnedToPrimary()) {
+            return PRIMARY;
+        }
+        boolean[] current = healthy;
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int candidate = (start + i) % replicas.size();
+            if (current[candidate]) {
+                return candidate;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return getResolvedDefaultDataSource().getConnection();
+        }
+        int replica = (Integer) key;
+        try {
+            return replicas.get(replica).getConnection();
+        } catch (SQLException e) {
+            boolean[] updated = healthy.clone();
+            updated[replica] = false;
+            healthy = updated;
+            return getResolvedDefaultDataSource().getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getResolvedDefaultDataSource().getConnection(username, password);
+    }
+
+    private void checkReplicas() {
+        boolean[] checked = new boolean[replicas.size()];
+        for (int i = 0; i < replicas.size(); i++) {
+            checked[i] = isFreshEnough(replicas.get(i));
+        }
+        healthy = checked;
+        ReplicaRoutingContext.purgeExpired();
+    }
+
+    //not private so the embedded-database tests can stand in for the MySQL-only SHOW REPLICA STATUS
+    boolean isFreshEnough(DataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!status.next()) {
+                return false;
+            }
+            long lag = status.getLong("Seconds_Behind_Source");
+            //NULL means the replication threads are not running, so the replica is not catching up at all
+            return !status.wasNull() && lag <= maxLagSeconds;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        healthChecker.shutdownNow();
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable pool) {
+                try {
+                    pool.close();
+                } catch (Exception e) {
+                    //shutting down anyway
+                }
+            }
+        }
+    }
+}
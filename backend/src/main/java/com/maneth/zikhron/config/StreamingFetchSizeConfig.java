@@ -0,0 +1,32 @@
+package com.maneth.zikhron.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+//The streaming queries in repo/ ask for a fetch size of Integer.MIN_VALUE, which makes MySQL Connector/J hand rows over
+//one at a time instead of reading the whole result into memory. Other drivers reject that value, so on any other
+//database the application's DataSource turns it into app.datasource.streaming-fetch-size, an ordinary fetch size.
+@Configuration
+public class StreamingFetchSizeConfig {
+
+    @Bean
+    public static BeanPostProcessor streamingFetchSizePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                //the one JPA uses: Boot's pool, or the routing proxy when replicas are configured
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                        || DatabaseDriver.fromJdbcUrl(environment.getProperty("spring.datasource.url")) == DatabaseDriver.MYSQL) {
+                    return bean;
+                }
+                return new StreamingFetchSizeDataSource(dataSource,
+                        environment.getProperty("app.datasource.streaming-fetch-size", Integer.class, 500));
+            }
+        };
+    }
+}
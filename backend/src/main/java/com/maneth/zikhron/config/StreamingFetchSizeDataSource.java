@@ -0,0 +1,67 @@
+package com.maneth.zikhron.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+//Turns a fetch size of Integer.MIN_VALUE, MySQL Connector/J's switch for streaming a result set row by row, into
+//fetchSize for drivers that reject it. Every other call goes straight to the target's connections and statements.
+public class StreamingFetchSizeDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final int fetchSize;
+
+    public StreamingFetchSizeDataSource(DataSource target, int fetchSize) {
+        super(target);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    //the container closes the pool through this when the DataSource bean is destroyed
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return result instanceof Statement statement ? wrap(statement) : result;
+                });
+    }
+
+    private Statement wrap(Statement statement) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("setFetchSize") && Integer.valueOf(Integer.MIN_VALUE).equals(args[0])) {
+                        args[0] = fetchSize;
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.maneth.zikhron.controller;
+
+
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.service.interfac.IAuditService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/audit")
+public class AuditController {
+
+    @Autowired
+    private IAuditService auditService;
+
+    @GetMapping
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> getAuditLog(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String actor,
+            @RequestParam(required = false) Long entityId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size
+    ) {
+        Response response = auditService.getAuditLog(from, to, action, actor, entityId, page, size);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+}
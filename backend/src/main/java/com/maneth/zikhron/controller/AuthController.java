@@ -6,6 +6,7 @@ import com.maneth.zikhron.dto.Response;
 import com.maneth.zikhron.entity.User;
 import com.maneth.zikhron.service.interfac.IUserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -32,4 +33,16 @@ public class AuthController {
         Response response = userService.login(loginRequest);
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Response> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            Response response = new Response();
+            response.setStatusCode(400);
+            response.setMessage("Please provide the token to revoke");
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+        }
+        Response response = userService.logout(authHeader.substring(7));
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
 }
\ No newline at end of file
@@ -1,13 +1,22 @@
 package com.maneth.zikhron.controller;
 
 
+import com.maneth.zikhron.dto.HoldRequest;
 import com.maneth.zikhron.dto.Response;
 import com.maneth.zikhron.entity.Booking;
+import com.maneth.zikhron.service.BookingAdmissionControl;
+import com.maneth.zikhron.service.IdempotencyStore;
+import com.maneth.zikhron.service.StreamingListWriter;
 import com.maneth.zikhron.service.interfac.IBookingService;
+import com.maneth.zikhron.utils.FieldSet;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/bookings")
@@ -16,24 +25,55 @@ public class BookingController {
 
     @Autowired
     private IBookingService bookingService;
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    @Autowired
+    private BookingAdmissionControl bookingAdmissionControl;
 
     @PostMapping("/book-room/{roomId}/{userId}")
     @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
     public ResponseEntity<Response> saveBookings(@PathVariable Long roomId,
                                                  @PathVariable Long userId,
-                                                 @RequestBody Booking bookingRequest) {
+                                                 @RequestBody Booking bookingRequest,
+                                                 @RequestParam(required = false) String holdId,
+                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            Response response = bookingAdmissionControl.admit(() -> bookingService.saveBooking(roomId, userId, bookingRequest, holdId));
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+        }
 
-        Response response = bookingService.saveBooking(roomId, userId, bookingRequest);
+        String caller = SecurityContextHolder.getContext().getAuthentication().getName();
+        String fingerprint = roomId + "|" + userId + "|" + bookingRequest.getCheckInDate() + "|" + bookingRequest.getCheckOutDate()
+                + "|" + bookingRequest.getNumOfAdults() + "|" + bookingRequest.getNumOfChildren() + "|" + holdId;
+        Response response = idempotencyStore.execute(caller, idempotencyKey, fingerprint,
+                () -> bookingAdmissionControl.admit(() -> bookingService.saveBooking(roomId, userId, bookingRequest, holdId)));
         return ResponseEntity.status(response.getStatusCode()).body(response);
 
     }
 
+    @PostMapping("/hold/{roomId}/{userId}")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> holdRoom(@PathVariable Long roomId,
+                                             @PathVariable Long userId,
+                                             @RequestBody HoldRequest holdRequest) {
+        Response response = bookingService.holdRoom(roomId, userId, holdRequest);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @DeleteMapping("/hold/{holdId}")
+    @PreAuthorize("hasAuthority('ADMIN') or hasAuthority('USER')")
+    public ResponseEntity<Response> releaseHold(@PathVariable String holdId) {
+        Response response = bookingService.releaseHold(holdId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @GetMapping("/all")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<Response> getAllBookings() {
-        Response response = bookingService.getAllBookings();
-        return ResponseEntity.status(response.getStatusCode()).body(response);
+    public ResponseEntity<StreamingResponseBody> getAllBookings(@RequestParam(required = false) String fields,
+                                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType format = StreamingListWriter.negotiate(accept);
+        return ResponseEntity.ok().contentType(format).body(out -> bookingService.writeAllBookings(out, format, FieldSet.parse(fields)));
     }
 
     @GetMapping("/get-by-confirmation-code/{confirmationCode}")
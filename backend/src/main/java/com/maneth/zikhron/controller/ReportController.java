@@ -0,0 +1,39 @@
+package com.maneth.zikhron.controller;
+
+
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.service.interfac.IReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/reports")
+public class ReportController {
+
+    @Autowired
+    private IReportService reportService;
+
+    @GetMapping("/occupancy")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> getOccupancyReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) String roomType
+    ) {
+        Response response = reportService.getOccupancyReport(from, to, granularity, roomType);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PostMapping("/occupancy/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response> rebuildOccupancyRollups() {
+        Response response = reportService.rebuildOccupancyRollups();
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+}
@@ -2,14 +2,23 @@ package com.maneth.zikhron.controller;
 
 
 import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.service.AvailabilityBroadcaster;
 import com.maneth.zikhron.service.interfac.IBookingService;
+import com.maneth.zikhron.service.StreamingListWriter;
 import com.maneth.zikhron.service.interfac.IRoomService;
+import com.maneth.zikhron.utils.FieldSet;
+import com.maneth.zikhron.utils.Utils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -23,6 +32,8 @@ public class RoomController {
     private IRoomService roomService;
     @Autowired
     private IBookingService iBookingService;
+    @Autowired
+    private AvailabilityBroadcaster availabilityBroadcaster;
 
 
     @PostMapping("/add")
@@ -45,9 +56,17 @@ public class RoomController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Response> getAllRooms() {
-        Response response = roomService.getAllRooms();
-        return ResponseEntity.status(response.getStatusCode()).body(response);
+    public ResponseEntity<StreamingResponseBody> getAllRooms(@RequestParam(required = false) String fields,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType format = StreamingListWriter.negotiate(accept);
+        return ResponseEntity.ok().contentType(format).body(out -> roomService.writeAllRooms(out, format, FieldSet.parse(fields)));
+    }
+
+    @GetMapping(value = "/availability-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAvailabilityChanges(@RequestParam(required = false) String roomType) {
+        return availabilityBroadcaster.subscribe(roomType)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(503).build());
     }
 
     @GetMapping("/types")
@@ -56,14 +75,14 @@ public class RoomController {
     }
 
     @GetMapping("/room-by-id/{roomId}")
-    public ResponseEntity<Response> getRoomById(@PathVariable Long roomId) {
-        Response response = roomService.getRoomById(roomId);
+    public ResponseEntity<Response> getRoomById(@PathVariable Long roomId, @RequestParam(required = false) String fields) {
+        Response response = Utils.selectRoomFields(roomService.getRoomById(roomId), FieldSet.parse(fields));
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
     @GetMapping("/all-available-rooms")
-    public ResponseEntity<Response> getAvailableRooms() {
-        Response response = roomService.getAllAvailableRooms();
+    public ResponseEntity<Response> getAvailableRooms(@RequestParam(required = false) String fields) {
+        Response response = Utils.selectRoomFields(roomService.getAllAvailableRooms(), FieldSet.parse(fields));
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
@@ -71,7 +90,8 @@ public class RoomController {
     public ResponseEntity<Response> getAvailableRoomsByDateAndType(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
-            @RequestParam(required = false) String roomType
+            @RequestParam(required = false) String roomType,
+            @RequestParam(required = false) String fields
     ) {
         if (checkInDate == null || roomType == null || roomType.isBlank() || checkOutDate == null) {
             Response response = new Response();
@@ -79,7 +99,30 @@ public class RoomController {
             response.setMessage("Please provide values for all fields(checkInDate, roomType,checkOutDate)");
             return ResponseEntity.status(response.getStatusCode()).body(response);
         }
-        Response response = roomService.getAvailableRoomsByDataAndType(checkInDate, checkOutDate, roomType);
+        Response response = Utils.selectRoomFields(roomService.getAvailableRoomsByDataAndType(checkInDate, checkOutDate, roomType),
+                FieldSet.parse(fields));
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Response> searchRooms(
+            @RequestParam(required = false) String roomType,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) String fields
+    ) {
+        if ((checkInDate == null) != (checkOutDate == null)) {
+            Response response = new Response();
+            response.setStatusCode(400);
+            response.setMessage("Please provide both checkInDate and checkOutDate or neither");
+            return ResponseEntity.status(response.getStatusCode()).body(response);
+        }
+        Response response = Utils.selectRoomFields(roomService.searchRooms(roomType, minPrice, maxPrice, keyword,
+                Sort.Direction.fromOptionalString(sort).orElse(null), checkInDate, checkOutDate), FieldSet.parse(fields));
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
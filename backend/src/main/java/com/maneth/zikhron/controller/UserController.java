@@ -3,13 +3,21 @@ package com.maneth.zikhron.controller;
 
 
 import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.service.StreamingListWriter;
 import com.maneth.zikhron.service.interfac.IUserService;
+import com.maneth.zikhron.utils.FieldSet;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/users")
@@ -22,9 +30,10 @@ public class UserController {
 
     @GetMapping("/all")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public ResponseEntity<Response> getAllUsers() {
-        Response response = userService.getAllUsers();
-        return ResponseEntity.status(response.getStatusCode()).body(response);
+    public ResponseEntity<StreamingResponseBody> getAllUsers(@RequestParam(required = false) String fields,
+                                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType format = StreamingListWriter.negotiate(accept);
+        return ResponseEntity.ok().contentType(format).body(out -> userService.writeAllUsers(out, format, FieldSet.parse(fields)));
     }
 
     @GetMapping("/get-by-id/{userId}")
@@ -55,5 +64,35 @@ public class UserController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @GetMapping("/get-user-bookings/{userId}/upcoming")
+    public ResponseEntity<Response> getUpcomingBookings(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        Response response = userService.getUpcomingBookings(userId, from, to, page, size);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/get-user-bookings/{userId}/past")
+    public ResponseEntity<Response> getPastBookings(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        Response response = userService.getPastBookings(userId, from, to, page, size);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @GetMapping("/get-next-stay/{userId}")
+    public ResponseEntity<Response> getNextUpcomingStay(@PathVariable("userId") String userId) {
+        Response response = userService.getNextUpcomingStay(userId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
 
 }
@@ -0,0 +1,18 @@
+package com.maneth.zikhron.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditEntryDTO {
+
+    private Long id;
+    private String action;
+    private String actor;
+    private Long entityId;
+    private String detail;
+    private LocalDateTime occurredAt;
+}
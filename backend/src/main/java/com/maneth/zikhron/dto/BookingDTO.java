@@ -12,9 +12,9 @@ public class BookingDTO {
     private Long id;
     private LocalDate checkInDate;
     private LocalDate checkOutDate;
-    private int numOfAdults;
-    private int numOfChildren;
-    private int totalNumOfGuest;
+    private Integer numOfAdults;
+    private Integer numOfChildren;
+    private Integer totalNumOfGuest;
     private String bookingConfirmationCode;
     private UserDTO user;
     private RoomDTO room;
@@ -0,0 +1,14 @@
+package com.maneth.zikhron.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class HoldRequest {
+    @NotNull(message = "Check in date is required")
+    private LocalDate checkInDate;
+    @NotNull(message = "Check out date is required")
+    private LocalDate checkOutDate;
+}
@@ -0,0 +1,19 @@
+package com.maneth.zikhron.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OccupancyReportDTO {
+
+    private String period;
+    private String roomType;
+    private long roomNightsSold;
+    private long roomNightsAvailable;
+    private BigDecimal occupancyRate;
+    private BigDecimal averageDailyRate;
+    private BigDecimal revenue;
+}
@@ -16,6 +16,12 @@ public class Response {
     private String role;
     private String expirationTime;
     private String bookingConfirmationCode;
+    private String holdId;
+
+    private Integer pageNumber;
+    private Integer pageSize;
+    private Long totalElements;
+    private Integer totalPages;
 
     private UserDTO user;
     private RoomDTO room;
@@ -23,6 +29,8 @@ public class Response {
     private List<UserDTO> userList;
     private List<RoomDTO> roomList;
     private List<BookingDTO> bookingList;
+    private List<OccupancyReportDTO> occupancyReport;
+    private List<AuditEntryDTO> auditLog;
 
 
 }
@@ -0,0 +1,38 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//Who changed what: one row per booking, cancellation, user deletion or room edit. Written in batches by AuditLog
+//after the change has committed, never updated.
+@Data
+@Entity
+@Table(name = "audit_log", indexes = {
+        @Index(name = "idx_audit_log_occurred_at", columnList = "occurredAt"),
+        @Index(name = "idx_audit_log_actor_occurred_at", columnList = "actor, occurredAt"),
+        @Index(name = "idx_audit_log_entity", columnList = "action, entityId")
+})
+public class AuditEntry {
+
+    public enum Action {
+        BOOKING_CREATED, BOOKING_CANCELLED, USER_DELETED, ROOM_ADDED, ROOM_UPDATED, ROOM_DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Action action;
+
+    private String actor;
+
+    private Long entityId;
+
+    @Column(length = 1000)
+    private String detail;
+
+    private LocalDateTime occurredAt;
+}
@@ -8,14 +8,19 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NonNull;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Data
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_check_out_date", columnList = "checkOutDate"),
+        @Index(name = "idx_bookings_user_check_in", columnList = "user_id, checkInDate")
+})
 @Entity
 public class Booking {
+    //assigned by BookingIdAllocator before the insert instead of AUTO_INCREMENT, so the confirmation code derived from it
+    //goes into the same INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @NotNull(message = "Check in date is required")
@@ -34,6 +39,10 @@ public class Booking {
 
     private String bookingConfirmationCode;
 
+    //room price when the booking was made; the occupancy rollups take this back out on cancellation, whatever the room
+    //costs by then. Null for bookings made before the column existed, which fall back to the current room price
+    private BigDecimal nightlyPrice;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "user_id")
     private User user;
@@ -0,0 +1,72 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//A checked-out booking moved out of the bookings table by BookingArchiver. Keeps the original booking id, so links and
+//confirmation codes handed out earlier still resolve.
+@Data
+@Entity
+@Table(name = "bookings_history", indexes = {
+        @Index(name = "idx_bookings_history_confirmation_code", columnList = "bookingConfirmationCode"),
+        @Index(name = "idx_bookings_history_user_check_in", columnList = "user_id, checkInDate")
+})
+public class BookingHistory {
+
+    @Id
+    private Long id;
+
+    private LocalDate checkInDate;
+
+    private LocalDate checkOutDate;
+
+    private int numOfAdults;
+
+    private int numOfChildren;
+
+    private int totalNumOfGuest;
+
+    private String bookingConfirmationCode;
+
+    private BigDecimal nightlyPrice;
+
+    private LocalDateTime archivedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id")
+    private Room room;
+
+    //detached copy so archived stays go through the same DTO mapping as live ones
+    public Booking toBooking() {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setCheckInDate(checkInDate);
+        booking.setCheckOutDate(checkOutDate);
+        booking.setNumOfAdults(numOfAdults);
+        booking.setNumOfChildren(numOfChildren);
+        booking.setBookingConfirmationCode(bookingConfirmationCode);
+        booking.setNightlyPrice(nightlyPrice);
+        booking.setUser(user);
+        booking.setRoom(room);
+        return booking;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingHistory{" +
+                "id=" + id +
+                ", checkInDate=" + checkInDate +
+                ", checkOutDate=" + checkOutDate +
+                ", bookingConfirmationCode='" + bookingConfirmationCode + '\'' +
+                ", archivedAt=" + archivedAt +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//One change that other app instances must drop from their in-process caches. Appended in the same transaction as the
+//change and tailed by every node's CacheInvalidationPoller in id order; rows are pruned once every node has had time to read them.
+@Data
+@Entity
+@Table(name = "cache_invalidations", indexes = @Index(name = "idx_cache_invalidation_created_at", columnList = "createdAt"))
+public class CacheInvalidation {
+
+    public enum Kind {
+        AVAILABILITY, ROOM, USER, REVOCATION, BOOKING
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+
+    private Long entityId;
+
+    private String roomType;
+
+    private LocalDate checkInDate;
+
+    private LocalDate checkOutDate;
+
+    private String originNode;
+
+    private LocalDateTime createdAt;
+}
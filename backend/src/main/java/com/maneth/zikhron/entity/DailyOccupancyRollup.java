@@ -0,0 +1,28 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+//Room nights sold and revenue for one room type on one night. Kept up to date as bookings are made and cancelled,
+//so reports read a few hundred rows instead of every booking.
+@Data
+@Entity
+@Table(name = "occupancy_daily_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_rollup_date_type", columnNames = {"stayDate", "roomType"}))
+public class DailyOccupancyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDate stayDate;
+
+    private String roomType;
+
+    private long roomNightsSold;
+
+    private BigDecimal revenue;
+}
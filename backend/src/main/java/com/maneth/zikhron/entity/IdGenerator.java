@@ -0,0 +1,16 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+//Next unallocated id of a table whose ids are handed out by the application in blocks (see BookingIdAllocator).
+@Data
+@Entity
+@Table(name = "id_generators")
+public class IdGenerator {
+
+    @Id
+    private String name;
+
+    private long nextVal;
+}
@@ -0,0 +1,20 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//Lease on a scheduled job that must not run on two nodes at once (see JobLocks). The job is held until lockedUntil.
+@Data
+@Entity
+@Table(name = "job_locks")
+public class JobLock {
+
+    @Id
+    private String name;
+
+    private LocalDateTime lockedUntil;
+
+    private String lockedBy;
+}
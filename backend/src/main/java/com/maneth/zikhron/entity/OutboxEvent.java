@@ -0,0 +1,47 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//A notification waiting to be delivered. Written in the same transaction as the change it describes and
+//drained by OutboxDispatcher, so a slow mail server or channel manager never sits on the booking request path.
+@Data
+@Entity
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_status_next_attempt", columnList = "status, nextAttemptAt"))
+public class OutboxEvent {
+
+    public enum Status {
+        PENDING, SENT, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String eventType;
+
+    private Long aggregateId;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private int attempts;
+
+    //also the claim: a dispatcher pushes it forward while it delivers, so the event is retried if that node dies
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    //names of the sinks that already have the event, comma separated; a retry goes only to the others
+    private String deliveredSinks;
+
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -0,0 +1,27 @@
+package com.maneth.zikhron.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//A revoked login, kept until the tokens it covers would have expired anyway. Either a single token (tokenId is its jti)
+//or every token of a subject issued up to revokedAt (tokenId is null), e.g. when the user is deleted.
+@Data
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_token_expires_at", columnList = "expiresAt"))
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36)
+    private String tokenId;
+
+    private String subject;
+
+    private LocalDateTime revokedAt;
+
+    private LocalDateTime expiresAt;
+}
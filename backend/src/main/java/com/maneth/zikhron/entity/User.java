@@ -2,20 +2,19 @@ package com.maneth.zikhron.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 @Data
 @Entity
 @Table(name = "users")
-//Spring Security needs to know how to fetch and understand your user — their username, password, roles, and whether the account is active.
-//Instead of forcing you to use a fixed User class, Spring says: “Hey, just implement this interface called UserDetails, and tell me how your user works.”
-public class User implements UserDetails {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+//Spring Security works with security/AuthUser instead, a slim projection of this entity.
+public class User {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -39,40 +38,4 @@ public class User implements UserDetails {
     //Here we use Lazy loading, so bookings are not fetched until user.getBookings() is called. we cam use DTOs to return and in the service layer we can call that getBookings() func.
     @OneToMany(mappedBy = "user", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Booking> bookings = new ArrayList<>();
-
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority(role));
-    }
-
-    @Override
-    public String getPassword() {
-        return password;
-    }
-
-    @Override
-    public String getUsername() {
-        return email;
-    }
-
-    @Override
-    public boolean isAccountNonExpired() {
-        return true;
-    }
-
-    @Override
-    public boolean isAccountNonLocked() {
-        return true;
-    }
-
-    @Override
-    public boolean isCredentialsNonExpired() {
-        return true;
-    }
-
-    @Override
-    public boolean isEnabled() {
-        return true;
-    }
 }
-
@@ -0,0 +1,7 @@
+package com.maneth.zikhron.event;
+
+import com.maneth.zikhron.entity.AuditEntry;
+
+//Published by the services for every change that belongs in the audit log; AuditLog records it once the change commits.
+public record AuditEvent(AuditEntry.Action action, Long entityId, String detail) {
+}
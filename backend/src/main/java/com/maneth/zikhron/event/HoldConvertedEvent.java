@@ -0,0 +1,5 @@
+package com.maneth.zikhron.event;
+
+//Published when a booking is saved for a room hold, so the hold can be dropped.
+public record HoldConvertedEvent(String holdId) {
+}
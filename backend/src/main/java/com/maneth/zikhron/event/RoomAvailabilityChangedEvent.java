@@ -0,0 +1,16 @@
+package com.maneth.zikhron.event;
+
+import java.time.LocalDate;
+
+//Published whenever the free/taken state of a room may have changed.
+//checkInDate and checkOutDate are null when the whole room changed (added, edited or removed) rather than a date range.
+public record RoomAvailabilityChangedEvent(Long roomId, String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+
+    public static RoomAvailabilityChangedEvent wholeRoom(Long roomId, String roomType) {
+        return new RoomAvailabilityChangedEvent(roomId, roomType, null, null);
+    }
+
+    public boolean isWholeRoom() {
+        return checkInDate == null || checkOutDate == null;
+    }
+}
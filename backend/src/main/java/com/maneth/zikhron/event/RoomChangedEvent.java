@@ -0,0 +1,15 @@
+package com.maneth.zikhron.event;
+
+import com.maneth.zikhron.entity.Room;
+
+//Published when a room is added, edited or deleted. room is the saved state, or null once the room is deleted.
+public record RoomChangedEvent(Long roomId, Room room) {
+
+    public static RoomChangedEvent saved(Room room) {
+        return new RoomChangedEvent(room.getId(), room);
+    }
+
+    public static RoomChangedEvent deleted(Long roomId) {
+        return new RoomChangedEvent(roomId, null);
+    }
+}
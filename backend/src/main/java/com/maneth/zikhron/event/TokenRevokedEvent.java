@@ -0,0 +1,7 @@
+package com.maneth.zikhron.event;
+
+import com.maneth.zikhron.entity.RevokedToken;
+
+//Published when a token, or every token of a subject, is revoked on this node.
+public record TokenRevokedEvent(RevokedToken revokedToken) {
+}
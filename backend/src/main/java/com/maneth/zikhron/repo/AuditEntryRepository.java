@@ -0,0 +1,18 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.entity.AuditEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface AuditEntryRepository extends JpaRepository<AuditEntry, Long> {
+
+    //null filters match everything; the occurredAt range keeps the scan on one of the time indexes
+    @Query("SELECT e FROM AuditEntry e WHERE e.occurredAt >= :from AND e.occurredAt < :to " +
+            "AND (:action IS NULL OR e.action = :action) AND (:actor IS NULL OR e.actor = :actor) " +
+            "AND (:entityId IS NULL OR e.entityId = :entityId)")
+    Page<AuditEntry> search(LocalDateTime from, LocalDateTime to, AuditEntry.Action action, String actor, Long entityId, Pageable page);
+}
@@ -0,0 +1,75 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.entity.BookingHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface BookingHistoryRepository extends JpaRepository<BookingHistory, Long> {
+
+    @Query("SELECT COALESCE(MAX(h.id), 0) FROM BookingHistory h")
+    long findMaxId();
+
+    @Query("SELECT h FROM BookingHistory h LEFT JOIN FETCH h.user LEFT JOIN FETCH h.room WHERE h.bookingConfirmationCode = :confirmationCode")
+    Optional<BookingHistory> findByBookingConfirmationCode(String confirmationCode);
+
+    @Query("SELECT h FROM BookingHistory h LEFT JOIN FETCH h.user LEFT JOIN FETCH h.room WHERE h.id = :bookingId")
+    Optional<BookingHistory> findByIdWithUserAndRoom(Long bookingId);
+
+    @Query("SELECT h.bookingConfirmationCode FROM BookingHistory h")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<String> streamAllConfirmationCodes();
+
+    @Query("SELECT h FROM BookingHistory h LEFT JOIN FETCH h.room WHERE h.user.id = :userId ORDER BY h.checkInDate DESC")
+    List<BookingHistory> findByUserIdWithRoom(Long userId);
+
+    @Query("SELECT h FROM BookingHistory h JOIN FETCH h.room WHERE h.user.id = :userId AND h.checkInDate BETWEEN :from AND :to")
+    List<BookingHistory> findForUserCheckingInBetween(Long userId, LocalDate from, LocalDate to, Pageable page);
+
+    @Query("SELECT COUNT(h) FROM BookingHistory h WHERE h.user.id = :userId AND h.checkInDate BETWEEN :from AND :to")
+    long countForUserCheckingInBetween(Long userId, LocalDate from, LocalDate to);
+
+    //copies the given bookings in one statement; the caller deletes them from bookings in the same transaction
+    @Modifying
+    @Query("INSERT INTO BookingHistory (id, checkInDate, checkOutDate, numOfAdults, numOfChildren, totalNumOfGuest, " +
+            "bookingConfirmationCode, nightlyPrice, archivedAt, user, room) " +
+            "SELECT b.id, b.checkInDate, b.checkOutDate, b.numOfAdults, b.numOfChildren, b.totalNumOfGuest, " +
+            "b.bookingConfirmationCode, b.nightlyPrice, :archivedAt, b.user, b.room FROM Booking b WHERE b.id IN :bookingIds")
+    int copyFromBookings(List<Long> bookingIds, LocalDateTime archivedAt);
+
+    //shaped like BookingRepository.findStaysForUser, so deleting a user can take its archived stays out of the rollups
+    @Query("SELECT h.checkInDate, h.checkOutDate, r.roomType, COALESCE(h.nightlyPrice, r.roomPrice), r.id FROM BookingHistory h JOIN h.room r WHERE h.user.id = :userId")
+    List<Object[]> findStaysForUser(Long userId);
+
+    @Query("SELECT h.checkInDate, h.checkOutDate, r.roomType, COALESCE(h.nightlyPrice, r.roomPrice), r.id FROM BookingHistory h JOIN h.room r WHERE r.id = :roomId")
+    List<Object[]> findStaysForRoom(Long roomId);
+
+    @Modifying
+    @Query("DELETE FROM BookingHistory h WHERE h.user.id = :userId")
+    int deleteAllForUser(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM BookingHistory h WHERE h.room.id = :roomId")
+    int deleteAllForRoom(Long roomId);
+
+    @Query("SELECT h.checkInDate, h.checkOutDate, r.roomType, COALESCE(h.nightlyPrice, r.roomPrice) FROM BookingHistory h JOIN h.room r " +
+            "WHERE h.checkInDate < :to AND h.checkOutDate > :from")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<Object[]> streamStaysForRollup(LocalDate from, LocalDate to);
+
+    @Query("SELECT MIN(h.checkInDate) FROM BookingHistory h")
+    LocalDate findFirstCheckIn();
+
+    @Query("SELECT MAX(h.checkOutDate) FROM BookingHistory h")
+    LocalDate findLastCheckOut();
+}
@@ -0,0 +1,9 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.entity.Booking;
+
+public interface BookingInsertRepository {
+
+    //persists a booking whose id was assigned by BookingIdAllocator; save() would take it for an existing row and merge
+    void insert(Booking booking);
+}
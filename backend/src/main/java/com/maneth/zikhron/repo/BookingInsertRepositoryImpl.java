@@ -0,0 +1,16 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.entity.Booking;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class BookingInsertRepositoryImpl implements BookingInsertRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insert(Booking booking) {
+        entityManager.persist(booking);
+    }
+}
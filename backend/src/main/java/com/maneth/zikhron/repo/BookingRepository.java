@@ -1,11 +1,82 @@
 package com.maneth.zikhron.repo;
 
 import com.maneth.zikhron.entity.Booking;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingInsertRepository {
+
+    @Query("SELECT COALESCE(MAX(b.id), 0) FROM Booking b")
+    long findMaxId();
 
     Optional<Booking> findByBookingConfirmationCode(String confirmationCode);
-}
\ No newline at end of file
+
+    @Query("SELECT b.bookingConfirmationCode FROM Booking b")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<String> streamAllConfirmationCodes();
+
+    @Query("SELECT b.bookingConfirmationCode FROM Booking b WHERE b.id = :bookingId")
+    Optional<String> findConfirmationCodeById(Long bookingId);
+
+    //user is mapped EAGER, fetching it in the same statement avoids one extra select per streamed booking
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.user ORDER BY b.id DESC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<Booking> streamAllNewestFirst();
+
+    //check-in, check-out, room type, nightly price of the stays overlapping [from, to): scalar rows keep the nightly rollup
+    //rebuild from loading entities
+    @Query("SELECT b.checkInDate, b.checkOutDate, r.roomType, COALESCE(b.nightlyPrice, r.roomPrice) FROM Booking b JOIN b.room r " +
+            "WHERE b.checkInDate < :to AND b.checkOutDate > :from")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<Object[]> streamStaysForRollup(LocalDate from, LocalDate to);
+
+    @Query("SELECT MIN(b.checkInDate) FROM Booking b")
+    LocalDate findFirstCheckIn();
+
+    @Query("SELECT MAX(b.checkOutDate) FROM Booking b")
+    LocalDate findLastCheckOut();
+
+    @Query("SELECT b.id FROM Booking b WHERE b.checkOutDate < :cutoff ORDER BY b.id")
+    List<Long> findIdsCheckedOutBefore(LocalDate cutoff, Pageable page);
+
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.id IN :bookingIds")
+    int deleteAllByIdIn(List<Long> bookingIds);
+
+    //check-in, check-out, room type, nightly price, room id of every booking that a user or room removal takes with it
+    @Query("SELECT b.checkInDate, b.checkOutDate, r.roomType, COALESCE(b.nightlyPrice, r.roomPrice), r.id FROM Booking b JOIN b.room r WHERE b.user.id = :userId")
+    List<Object[]> findStaysForUser(Long userId);
+
+    @Query("SELECT b.checkInDate, b.checkOutDate, r.roomType, COALESCE(b.nightlyPrice, r.roomPrice), r.id FROM Booking b JOIN b.room r WHERE r.id = :roomId")
+    List<Object[]> findStaysForRoom(Long roomId);
+
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.user.id = :userId")
+    int deleteAllForUser(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.room.id = :roomId")
+    int deleteAllForRoom(Long roomId);
+
+    //served by idx_bookings_user_check_in; room is fetched in the same statement
+    @Query("SELECT b FROM Booking b JOIN FETCH b.room WHERE b.user.id = :userId ORDER BY b.checkInDate DESC")
+    List<Booking> findAllForUserWithRoom(Long userId);
+
+    @Query(value = "SELECT b FROM Booking b JOIN FETCH b.room WHERE b.user.id = :userId AND b.checkInDate BETWEEN :from AND :to",
+            countQuery = "SELECT COUNT(b) FROM Booking b WHERE b.user.id = :userId AND b.checkInDate BETWEEN :from AND :to")
+    Page<Booking> findForUserCheckingInBetween(Long userId, LocalDate from, LocalDate to, Pageable page);
+
+    @Query("SELECT b FROM Booking b JOIN FETCH b.room WHERE b.user.id = :userId AND b.checkInDate >= :from ORDER BY b.checkInDate")
+    List<Booking> findNextForUser(Long userId, LocalDate from, Pageable page);
+}
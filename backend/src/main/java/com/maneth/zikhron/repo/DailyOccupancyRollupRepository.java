@@ -0,0 +1,24 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.entity.DailyOccupancyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyOccupancyRollupRepository extends JpaRepository<DailyOccupancyRollup, Long> {
+
+    List<DailyOccupancyRollup> findByStayDateBetweenOrderByStayDate(LocalDate from, LocalDate to);
+
+    @Query("SELECT MIN(r.stayDate) FROM DailyOccupancyRollup r")
+    LocalDate findFirstStayDate();
+
+    @Query("SELECT MAX(r.stayDate) FROM DailyOccupancyRollup r")
+    LocalDate findLastStayDate();
+
+    @Modifying
+    @Query("DELETE FROM DailyOccupancyRollup r WHERE r.stayDate >= :from AND r.stayDate < :to")
+    int deleteStayDates(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,16 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.entity.IdGenerator;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface IdGeneratorRepository extends JpaRepository<IdGenerator, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM IdGenerator g WHERE g.name = :name")
+    Optional<IdGenerator> lockByName(String name);
+}
@@ -0,0 +1,28 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    //lock timeout -2 is Hibernate's SKIP LOCKED, so several app instances can drain the outbox without blocking each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = com.maneth.zikhron.entity.OutboxEvent.Status.PENDING " +
+            "AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<OutboxEvent> lockDueBatch(LocalDateTime now, Pageable page);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = com.maneth.zikhron.entity.OutboxEvent.Status.SENT AND e.sentAt < :cutoff")
+    int deleteSentBefore(LocalDateTime cutoff);
+}
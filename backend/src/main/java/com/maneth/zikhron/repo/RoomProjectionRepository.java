@@ -0,0 +1,12 @@
+package com.maneth.zikhron.repo;
+
+import jakarta.persistence.Tuple;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface RoomProjectionRepository {
+
+    //selects only the given Room attributes, each aliased by its own name; callers pass whitelisted names only
+    Stream<Tuple> streamColumnsOrderByIdDesc(List<String> attributes);
+}
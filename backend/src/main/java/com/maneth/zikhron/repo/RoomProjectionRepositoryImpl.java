@@ -0,0 +1,24 @@
+package com.maneth.zikhron.repo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class RoomProjectionRepositoryImpl implements RoomProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Tuple> streamColumnsOrderByIdDesc(List<String> attributes) {
+        String select = attributes.stream().map(attribute -> "r." + attribute + " AS " + attribute).collect(Collectors.joining(", "));
+        return entityManager.createQuery("SELECT " + select + " FROM Room r ORDER BY r.id DESC", Tuple.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, "-2147483648")
+                .getResultStream();
+    }
+}
@@ -1,21 +1,32 @@
 package com.maneth.zikhron.repo;
 
 import com.maneth.zikhron.entity.Room;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface RoomRepository extends JpaRepository<Room, Long> {
+public interface RoomRepository extends JpaRepository<Room, Long>, RoomProjectionRepository {
+
+    //Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the whole result set
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<Room> streamAllByOrderByIdDesc();
 
     @Query("SELECT DISTINCT r.roomType FROM Room r")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "room-types")})
     List<String> findDistinctRoomTypes();
 
 
-    @Query("SELECT r FROM Room r WHERE r.roomType LIKE %:roomType% AND r.id NOT IN (SELECT bk.room.id FROM Booking bk WHERE" +
-            "(bk.checkInDate <= :checkOutDate) AND (bk.checkOutDate >= :checkInDate))")
-    List<Room> findAvailableRoomsByDatesAndTypes(LocalDate checkInDate, LocalDate checkOutDate, String roomType);
+    //Room type, price and keyword filtering is done by RoomSearchIndex, the database only tells which rooms are taken.
+    @Query("SELECT DISTINCT bk.room.id FROM Booking bk WHERE" +
+            "(bk.checkInDate <= :checkOutDate) AND (bk.checkOutDate >= :checkInDate)")
+    List<Long> findBookedRoomIdsBetween(LocalDate checkInDate, LocalDate checkOutDate);
 
 
     @Query("SELECT r FROM Room r WHERE r.id NOT IN (SELECT b.room.id FROM Booking b)")
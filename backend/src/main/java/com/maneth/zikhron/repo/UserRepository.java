@@ -1,13 +1,29 @@
 package com.maneth.zikhron.repo;
 
 import com.maneth.zikhron.entity.User;
+import com.maneth.zikhron.security.AuthUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "users-by-email")})
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT new com.maneth.zikhron.security.AuthUser(u.id, u.email, u.password, u.role) FROM User u WHERE u.email = :email")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "auth-users-by-email")})
+    Optional<AuthUser> findAuthUserByEmail(String email);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<User> streamAllBy();
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.maneth.zikhron.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+//The security principal: just what authentication needs, read by UserRepository.findAuthUserByEmail instead of loading
+//the User entity, so nothing attached to a SecurityContext can lazy-load bookings or keep a persistence context alive.
+public record AuthUser(Long id, String email, String password, String role) implements UserDetails {
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role));
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    //the password hash is only needed to check a login, never print it
+    @Override
+    public String toString() {
+        return "AuthUser[id=" + id + ", email=" + email + ", role=" + role + "]";
+    }
+}
@@ -2,7 +2,9 @@ package com.maneth.zikhron.security;
 
 
 import com.maneth.zikhron.service.CustomUserDetailsService;
+import com.maneth.zikhron.service.TokenRevocationList;
 import com.maneth.zikhron.utils.JWTUtils;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +27,8 @@ public class JWTAuthFilter extends OncePerRequestFilter {
     private JWTUtils jwtUtils;
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
 
 
     @Override
@@ -40,11 +44,15 @@ public class JWTAuthFilter extends OncePerRequestFilter {
         }
 
         jwtToken = authHeader.substring(7);
-        userEmail = jwtUtils.extractUsername(jwtToken);
+        Claims claims = jwtUtils.extractAllClaims(jwtToken);
+        userEmail = claims.getSubject();
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        //checked before loading the user, so a logged out or deleted user's token never reaches the database
+        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationList.isRevoked(claims.getId(), userEmail, claims.getIssuedAt())) {
             UserDetails userDetails = customUserDetailsService.loadUserByUsername(userEmail);
-            if (jwtUtils.isValidToken(jwtToken, userDetails)) {
+            //signature and expiry were verified when the claims were parsed
+            if (userEmail.equals(userDetails.getUsername())) {
                 SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
                 UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 token.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
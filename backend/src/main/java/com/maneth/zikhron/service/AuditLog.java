@@ -0,0 +1,214 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.event.AuditEvent;
+import com.maneth.zikhron.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//Audit trail of bookings, cancellations, user deletions and room edits. Services publish an AuditEvent; once the change
+//has committed the request thread only drops it into a lock-free ring buffer, and a single writer thread turns the
+//buffer into multi-row INSERTs whenever batchSize entries are waiting or flushMs has passed. What happens when the
+//buffer is full is up to app.audit.overflow: DROP the entry, BLOCK the caller for up to blockMs, or WRITE_THROUGH
+//synchronously on the caller's thread. Entries still buffered when the node dies are lost.
+@Slf4j
+@Service
+@Lazy(false)
+public class AuditLog {
+
+    public enum OverflowPolicy {
+        DROP, BLOCK, WRITE_THROUGH
+    }
+
+    private static final String INSERT = "INSERT INTO audit_log (action, actor, entity_id, detail, occurred_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?)";
+    private static final int MAX_DETAIL_LENGTH = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audit.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${app.audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.audit.flush-ms:1000}")
+    private long flushMillis;
+
+    @Value("${app.audit.overflow:DROP}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${app.audit.block-ms:50}")
+    private long blockMillis;
+
+    @Value("${app.audit.write-attempts:3}")
+    private int writeAttempts;
+
+    private record Entry(AuditEvent event, String actor, LocalDateTime occurredAt) {
+    }
+
+    private TransactionTemplate transactionTemplate;
+    private MpscRingBuffer<Entry> buffer;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Counter written;
+    private Counter dropped;
+    private Counter failed;
+
+    @PostConstruct
+    public void init() {
+        //a write-through from an after-commit listener would otherwise join the finished transaction and never commit
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        buffer = new MpscRingBuffer<>(bufferSize);
+        written = Counter.builder("zikhron.audit.written")
+                .description("Audit entries stored")
+                .register(meterRegistry);
+        dropped = Counter.builder("zikhron.audit.dropped")
+                .description("Audit entries discarded because the buffer was full")
+                .register(meterRegistry);
+        failed = Counter.builder("zikhron.audit.failed")
+                .description("Audit entries lost because every attempt to store them failed")
+                .register(meterRegistry);
+        Gauge.builder("zikhron.audit.buffered", buffer, MpscRingBuffer::size)
+                .description("Audit entries waiting for the writer")
+                .register(meterRegistry);
+        if (enabled) {
+            running = true;
+            writer = new Thread(this::runWriter, "audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer != null) {
+            running = false;
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    //runs on the request thread after commit, so a rolled back change is never audited and the actor is still known
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuditEvent(AuditEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(event, currentActor(), LocalDateTime.now());
+        if (offer(entry)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP -> dropped.increment();
+            case BLOCK -> {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockMillis);
+                while (!offer(entry)) {
+                    if (System.nanoTime() >= deadline) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                }
+            }
+            case WRITE_THROUGH -> write(List.of(entry));
+        }
+    }
+
+    private boolean offer(Entry entry) {
+        if (!buffer.offer(entry)) {
+            LockSupport.unpark(writer);
+            return false;
+        }
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    //wakes up when a full batch is waiting or flushMs has passed, and writes whatever is buffered
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (buffer.size() < batchSize) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(flushMillis));
+            }
+            drainAndWrite(batch);
+        }
+        while (buffer.size() > 0) {
+            drainAndWrite(batch);
+        }
+    }
+
+    private void drainAndWrite(List<Entry> batch) {
+        batch.clear();
+        if (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Entry> entries) {
+        StringBuilder sql = new StringBuilder(INSERT.length() + entries.size() * (ROW.length() + 2)).append(INSERT);
+        Object[] args = new Object[entries.size() * 5];
+        int i = 0;
+        for (Entry entry : entries) {
+            sql.append(i == 0 ? "" : ", ").append(ROW);
+            String detail = entry.event().detail();
+            args[i++] = entry.event().action().name();
+            args[i++] = entry.actor();
+            args[i++] = entry.event().entityId();
+            args[i++] = detail != null && detail.length() > MAX_DETAIL_LENGTH ? detail.substring(0, MAX_DETAIL_LENGTH) : detail;
+            args[i++] = Timestamp.valueOf(entry.occurredAt());
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(sql.toString(), args));
+                written.increment(entries.size());
+                return;
+            } catch (Exception e) {
+                if (attempt >= writeAttempts) {
+                    failed.increment(entries.size());
+                    log.error("Dropping {} audit entries after {} failed attempts: {}", entries.size(), attempt, e.getMessage());
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L << attempt));
+            }
+        }
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+}
@@ -0,0 +1,204 @@
+package com.maneth.zikhron.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Pushes availability deltas (room, type, date range) to SSE subscribers once the change has committed, so clients can
+//refresh what they show instead of re-polling the search endpoints.
+//An idle subscriber is an async connection plus an empty queue: no thread is held. A delta is serialized once and queued
+//per subscriber, and each queue is drained by a virtual thread of its own while it has messages. A send blocked on a slow
+//connection parks only that virtual thread, so it delays no other subscriber. A subscriber that falls more than
+//maxPending messages behind is disconnected, and its EventSource reconnects.
+@Slf4j
+@Service
+public class AvailabilityBroadcaster {
+
+    private static final String EVENT_NAME = "availability";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.availability.stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${app.availability.stream.max-pending:64}")
+    private int maxPending;
+
+    @Value("${app.availability.stream.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    //how long queued messages may go without a single one reaching the client
+    @Value("${app.availability.stream.stall-timeout-ms:10000}")
+    private long stallTimeoutMillis;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private ExecutorService senders;
+    private Counter published;
+    private Counter evicted;
+
+    private record Message(long id, String json) {
+
+        static final Message HEARTBEAT = new Message(-1, null);
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(String.valueOf(id)).name(EVENT_NAME).data(json, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("availability-sse-", 1).factory());
+        Gauge.builder("zikhron.availability.stream.subscribers", subscribers, Set::size).register(meterRegistry);
+        published = Counter.builder("zikhron.availability.stream.published").register(meterRegistry);
+        evicted = Counter.builder("zikhron.availability.stream.evicted")
+                .description("Subscribers disconnected for falling too far behind")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    //empty when the subscriber limit is reached
+    public Optional<SseEmitter> subscribe(String roomType) {
+        if (subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+        return Optional.of(register(new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes)), roomType));
+    }
+
+    SseEmitter register(SseEmitter emitter, String roomType) {
+        Subscriber subscriber = new Subscriber(emitter, roomType == null || roomType.isBlank() ? null : RoomSearchIndex.normalizeType(roomType));
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Message message;
+        try {
+            message = new Message(sequence.incrementAndGet(), objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize availability change {}", event, e);
+            return;
+        }
+        String type = event.roomType() == null ? null : RoomSearchIndex.normalizeType(event.roomType());
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.roomType == null || type == null || subscriber.roomType.equals(type)) {
+                subscriber.offer(message);
+            }
+        }
+        published.increment();
+    }
+
+    //keeps proxies from closing idle streams and surfaces dead connections; a subscriber whose queue has not moved
+    //for stallTimeoutMs is disconnected even if nothing new arrives to push it over maxPending
+    @Scheduled(fixedDelayString = "${app.availability.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        long stalledSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+        subscribers.forEach(subscriber -> {
+            if (subscriber.pendingCount.get() == 0) {
+                subscriber.offer(Message.HEARTBEAT);
+            } else if (subscriber.lastProgress - stalledSince < 0) {
+                evict(subscriber);
+            }
+        });
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            evicted.increment();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final SseEmitter emitter;
+        private final String roomType;
+        private final Queue<Message> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        //nanoTime of the last message sent, or of the first one queued after the queue had run empty
+        private volatile long lastProgress = System.nanoTime();
+
+        private Subscriber(SseEmitter emitter, String roomType) {
+            this.emitter = emitter;
+            this.roomType = roomType;
+        }
+
+        private void offer(Message message) {
+            if (pendingCount.incrementAndGet() > maxPending) {
+                evict(this);
+                return;
+            }
+            if (pending.isEmpty()) {
+                lastProgress = System.nanoTime();
+            }
+            pending.add(message);
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Message message;
+                while ((message = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    emitter.send(message.toEvent());
+                    lastProgress = System.nanoTime();
+                }
+            } catch (IOException | IllegalStateException e) {
+                //client went away; the emitter's error/completion callback removes it
+                subscribers.remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            //a message may have been queued after the last poll but before the flag was cleared
+            if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+    }
+}
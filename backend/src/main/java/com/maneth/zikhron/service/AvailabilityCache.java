@@ -0,0 +1,170 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Completed availability searches keyed by (roomType, checkIn, checkOut).
+//Cached keys are also indexed per room type by check-in date, so a booking only evicts the searches of its type whose
+//date range overlaps it, using the same overlap rule as RoomRepository.findBookedRoomIdsBetween.
+@Service
+public class AvailabilityCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.availability.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.availability.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final LinkedHashMap<AvailabilityQuery, CachedSearch> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, TreeMap<LocalDate, Set<AvailabilityQuery>>> keysByTypeAndCheckIn = new HashMap<>();
+    private final Map<String, Long> typeVersions = new HashMap<>();
+    private long globalVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record CachedSearch(Response response, long expiresAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        FunctionCounter.builder("zikhron.availability.cache.hits", hits, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("zikhron.availability.cache.misses", misses, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("zikhron.availability.cache.evictions", evictions, AtomicLong::get)
+                .description("Cached searches dropped because a booking or room change overlapped them")
+                .register(meterRegistry);
+        Gauge.builder("zikhron.availability.cache.size", this, AvailabilityCache::size).register(meterRegistry);
+    }
+
+    public synchronized Response get(AvailabilityQuery query) {
+        CachedSearch cached = entries.get(query);
+        if (cached == null || cached.expiresAt() < System.currentTimeMillis()) {
+            if (cached != null) {
+                removeEntry(query);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.response();
+    }
+
+    //Taken before running a search and handed back to put(); if anything for that type was invalidated in between,
+    //the result may already be stale and is not cached.
+    public synchronized long stamp(AvailabilityQuery query) {
+        return globalVersion + typeVersions.getOrDefault(query.roomType(), 0L);
+    }
+
+    public synchronized void put(AvailabilityQuery query, Response response, long stamp) {
+        if (stamp != stamp(query)) {
+            return;
+        }
+        removeEntry(query);
+        entries.put(query, new CachedSearch(response, System.currentTimeMillis() + ttlSeconds * 1000));
+        keysByTypeAndCheckIn.computeIfAbsent(query.roomType(), k -> new TreeMap<>())
+                .computeIfAbsent(query.checkInDate(), k -> new HashSet<>())
+                .add(query);
+
+        Iterator<AvailabilityQuery> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            AvailabilityQuery key = eldest.next();
+            eldest.remove();
+            unindex(key);
+        }
+    }
+
+    public synchronized void invalidate(String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        String type = RoomSearchIndex.normalizeType(roomType);
+        typeVersions.merge(type, 1L, Long::sum);
+
+        TreeMap<LocalDate, Set<AvailabilityQuery>> byCheckIn = keysByTypeAndCheckIn.get(type);
+        if (byCheckIn == null) {
+            return;
+        }
+        List<AvailabilityQuery> overlapping = new ArrayList<>();
+        for (Set<AvailabilityQuery> keys : byCheckIn.headMap(checkOutDate, true).values()) {
+            for (AvailabilityQuery key : keys) {
+                if (!key.checkOutDate().isBefore(checkInDate)) {
+                    overlapping.add(key);
+                }
+            }
+        }
+        overlapping.forEach(this::removeEntry);
+        evictions.addAndGet(overlapping.size());
+    }
+
+    public synchronized void invalidateType(String roomType) {
+        String type = RoomSearchIndex.normalizeType(roomType);
+        typeVersions.merge(type, 1L, Long::sum);
+
+        TreeMap<LocalDate, Set<AvailabilityQuery>> byCheckIn = keysByTypeAndCheckIn.get(type);
+        if (byCheckIn == null) {
+            return;
+        }
+        List<AvailabilityQuery> keys = new ArrayList<>();
+        byCheckIn.values().forEach(keys::addAll);
+        keys.forEach(this::removeEntry);
+        evictions.addAndGet(keys.size());
+    }
+
+    public synchronized void invalidateAll() {
+        globalVersion++;
+        evictions.addAndGet(entries.size());
+        entries.clear();
+        keysByTypeAndCheckIn.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(RoomAvailabilityChangedEvent event) {
+        if (event.roomType() == null) {
+            invalidateAll();
+        } else if (event.isWholeRoom()) {
+            invalidateType(event.roomType());
+        } else {
+            invalidate(event.roomType(), event.checkInDate(), event.checkOutDate());
+        }
+    }
+
+    private void removeEntry(AvailabilityQuery query) {
+        if (entries.remove(query) != null) {
+            unindex(query);
+        }
+    }
+
+    private void unindex(AvailabilityQuery query) {
+        TreeMap<LocalDate, Set<AvailabilityQuery>> byCheckIn = keysByTypeAndCheckIn.get(query.roomType());
+        if (byCheckIn == null) {
+            return;
+        }
+        Set<AvailabilityQuery> keys = byCheckIn.get(query.checkInDate());
+        if (keys != null) {
+            keys.remove(query);
+            if (keys.isEmpty()) {
+                byCheckIn.remove(query.checkInDate());
+            }
+        }
+        if (byCheckIn.isEmpty()) {
+            keysByTypeAndCheckIn.remove(query.roomType());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.maneth.zikhron.service;
+
+import java.time.LocalDate;
+
+//Key of an availability search. roomType is stored normalized so "Suite" and " suite" are the same search.
+public record AvailabilityQuery(LocalDate checkInDate, LocalDate checkOutDate, String roomType) {
+
+    public static AvailabilityQuery of(LocalDate checkInDate, LocalDate checkOutDate, String roomType) {
+        return new AvailabilityQuery(checkInDate, checkOutDate, RoomSearchIndex.normalizeType(roomType));
+    }
+}
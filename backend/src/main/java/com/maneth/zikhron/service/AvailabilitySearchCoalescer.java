@@ -0,0 +1,49 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.utils.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+//Identical availability searches that arrive together (e.g. right after a promotion goes out) share one database round trip.
+@Service
+public class AvailabilitySearchCoalescer {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.availability.coalescing.max-wait-ms:5000}")
+    private long maxWaitMillis;
+
+    private SingleFlight<AvailabilityQuery, Response> searches;
+
+    @PostConstruct
+    public void init() {
+        searches = new SingleFlight<>(maxWaitMillis);
+
+        FunctionCounter.builder("zikhron.availability.search.executions", searches, SingleFlight::getExecutions)
+                .description("Availability searches that actually ran the query")
+                .register(meterRegistry);
+        FunctionCounter.builder("zikhron.availability.search.coalesced", searches, SingleFlight::getCoalesced)
+                .description("Availability searches served by an identical in-flight search")
+                .register(meterRegistry);
+        FunctionCounter.builder("zikhron.availability.search.wait.timeouts", searches, SingleFlight::getWaitTimeouts)
+                .description("Coalesced searches that stopped waiting and ran the query themselves")
+                .register(meterRegistry);
+        Gauge.builder("zikhron.availability.search.coalescing.ratio", searches, SingleFlight::getCoalescingRatio)
+                .register(meterRegistry);
+        Gauge.builder("zikhron.availability.search.in.flight", searches, SingleFlight::getInFlight)
+                .register(meterRegistry);
+    }
+
+    public Response search(AvailabilityQuery query, Supplier<Response> loader) {
+        return searches.execute(query, loader);
+    }
+}
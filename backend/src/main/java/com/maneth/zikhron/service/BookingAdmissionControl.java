@@ -0,0 +1,94 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.utils.AdaptiveConcurrencyLimiter;
+import com.maneth.zikhron.utils.AdaptiveConcurrencyLimiter.Outcome;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+//Admission control in front of saveBooking. Under a spike, bookings beyond the adaptive limit get a 503 right away,
+//so the ones let through keep getting database connections and finish instead of all timing out together.
+//The "booking" bulkhead in BulkheadConfig sits in front of this and caps concurrent booking requests on its own, so the
+//limit could never grow past it anyway; max-limit therefore defaults to the bulkhead's max-concurrent. Raise both together.
+//Each admitted booking holds a pooled connection for its whole transaction, so both limits are also kept at least one
+//below the pool size: that connection is left for BookingIdAllocator's block fetch, which bookings may be waiting on.
+@Slf4j
+@Service
+public class BookingAdmissionControl {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.booking.admission.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${app.booking.admission.min-limit:2}")
+    private int minLimit;
+
+    @Value("${app.booking.admission.max-limit:${app.bulkheads.booking.max-concurrent:24}}")
+    private int maxLimit;
+
+    @Value("${app.booking.admission.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${app.booking.admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    //the same property sizes the primary pool with or without replicas
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int poolSize;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @PostConstruct
+    public void init() {
+        int connectionBound = Math.max(1, poolSize - 1);
+        if (maxLimit > connectionBound) {
+            log.info("Booking admission limit capped at {} for a pool of {} connections", connectionBound, poolSize);
+            maxLimit = connectionBound;
+        }
+        minLimit = Math.min(minLimit, maxLimit);
+        initialLimit = Math.min(initialLimit, maxLimit);
+        limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio);
+
+        Gauge.builder("zikhron.booking.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("zikhron.booking.admission.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .register(meterRegistry);
+        FunctionCounter.builder("zikhron.booking.admission.admitted", limiter, AdaptiveConcurrencyLimiter::getAdmitted)
+                .register(meterRegistry);
+        FunctionCounter.builder("zikhron.booking.admission.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .description("Bookings shed with 503 because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    public Response admit(Supplier<Response> booking) {
+        if (!limiter.tryAcquire()) {
+            Response response = new Response();
+            response.setStatusCode(503);
+            response.setMessage("Booking service is busy, please retry shortly");
+            return response;
+        }
+
+        long started = System.nanoTime();
+        Outcome outcome = Outcome.FAILED;
+        try {
+            Response response = booking.get();
+            //5xx means the database or something behind it struggled. Client errors are neutral: many are turned away
+            //before any query runs, and their latency would drag the baseline down to microseconds
+            int statusCode = response.getStatusCode();
+            outcome = statusCode >= 500 ? Outcome.FAILED : statusCode >= 200 && statusCode < 300 ? Outcome.SUCCEEDED : Outcome.IGNORED;
+            return response;
+        } finally {
+            limiter.release(System.nanoTime() - started, outcome);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.repo.BookingHistoryRepository;
+import com.maneth.zikhron.repo.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Moves bookings checked out more than horizonDays ago into bookings_history so the hot table only holds stays that can
+//still conflict. Works in small chunks, each copied and deleted in its own short transaction, so row locks are held briefly.
+//Runs on one node at a time: two nodes copying the same chunk would collide on the bookings_history primary key.
+@Slf4j
+@Service
+@Lazy(false)
+public class BookingArchiver {
+
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JobLocks jobLocks;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.archive.horizon-days:365}")
+    private int horizonDays;
+
+    @Value("${app.archive.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.archive.pause-ms:50}")
+    private long pauseMillis;
+
+    //longer than an archive run can take
+    @Value("${app.archive.lock-minutes:60}")
+    private long lockMinutes;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter archived;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        archived = Counter.builder("zikhron.bookings.archived").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 0 4 * * *}")
+    public int archive() {
+        Integer total = jobLocks.runLocked("booking-archiver", Duration.ofMinutes(lockMinutes), this::archiveAll);
+        return total != null ? total : 0;
+    }
+
+    private int archiveAll() {
+        LocalDate cutoff = LocalDate.now().minusDays(horizonDays);
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> archiveChunk(cutoff));
+            total += moved;
+            archived.increment(moved);
+            if (moved == chunkSize && pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while (moved == chunkSize);
+
+        if (total > 0) {
+            log.info("Archived {} bookings checked out before {}", total, cutoff);
+        }
+        return total;
+    }
+
+    private int archiveChunk(LocalDate cutoff) {
+        List<Long> bookingIds = bookingRepository.findIdsCheckedOutBefore(cutoff, PageRequest.of(0, chunkSize));
+        if (bookingIds.isEmpty()) {
+            return 0;
+        }
+        bookingHistoryRepository.copyFromBookings(bookingIds, LocalDateTime.now());
+        bookingRepository.deleteAllByIdIn(bookingIds);
+        return bookingIds.size();
+    }
+}
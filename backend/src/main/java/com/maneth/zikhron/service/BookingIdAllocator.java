@@ -0,0 +1,149 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.entity.IdGenerator;
+import com.maneth.zikhron.repo.BookingHistoryRepository;
+import com.maneth.zikhron.repo.BookingRepository;
+import com.maneth.zikhron.repo.IdGeneratorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Booking ids, handed out before the insert so the confirmation code derived from the id is written by the same INSERT.
+//Each node reserves blocks of blockSize ids from the id_generators row under a row lock, in its own short transaction,
+//so nodes never hand out the same id; ids are unique but not gap-free or ordered across nodes. At startup the row is
+//created, or moved past the highest id already in bookings and bookings_history (rows written by AUTO_INCREMENT before).
+//The next block is fetched on a thread of its own once the current one is half used. A booking already holds a pooled
+//connection when it asks for an id, so fetching on the booking thread would need a second one; with every connection
+//taken by bookings waiting for ids that never comes. Bookings that do run dry wait for the fetch without holding the
+//lock, and BookingAdmissionControl keeps them below the pool size, so the fetch always finds a connection.
+@Slf4j
+@Service
+@Lazy(false)
+public class BookingIdAllocator {
+
+    private static final String GENERATOR = "bookings";
+
+    @Autowired
+    private IdGeneratorRepository idGeneratorRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.booking.id-block-size:50}")
+    private int blockSize;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService refiller;
+    //[next, end) is the unused part of the current block, nextBlock the start of the one after it once requested;
+    //all guarded by this
+    private long next;
+    private long end;
+    private CompletableFuture<Long> nextBlock;
+
+    @PostConstruct
+    public void init() {
+        //not joined to the caller's transaction: a rolled back booking must not give its block back to another node
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            seed();
+        } catch (DataIntegrityViolationException e) {
+            //another node created the row at the same moment
+            seed();
+        }
+
+        refiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "booking-id-refill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (this) {
+            nextBlock = fetchBlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refiller.shutdownNow();
+    }
+
+    public long next() {
+        while (true) {
+            CompletableFuture<Long> pending;
+            synchronized (this) {
+                if (next < end) {
+                    if (nextBlock == null && end - next <= blockSize / 2) {
+                        nextBlock = fetchBlock();
+                    }
+                    return next++;
+                }
+                if (nextBlock == null) {
+                    nextBlock = fetchBlock();
+                }
+                pending = nextBlock;
+            }
+
+            long start;
+            try {
+                start = pending.join();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    //the next caller tries again
+                    if (nextBlock == pending) {
+                        nextBlock = null;
+                    }
+                }
+                throw e;
+            }
+            synchronized (this) {
+                //whoever gets here first moves on to the new block; the others find it in [next, end)
+                if (nextBlock == pending) {
+                    next = start;
+                    end = start + blockSize;
+                    nextBlock = null;
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Long> fetchBlock() {
+        return CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            IdGenerator generator = idGeneratorRepository.lockByName(GENERATOR)
+                    .orElseThrow(() -> new IllegalStateException("id_generators has no row for " + GENERATOR));
+            long start = generator.getNextVal();
+            generator.setNextVal(start + blockSize);
+            return start;
+        }), refiller);
+    }
+
+    private void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            long firstFree = Math.max(bookingRepository.findMaxId(), bookingHistoryRepository.findMaxId()) + 1;
+            IdGenerator generator = idGeneratorRepository.lockByName(GENERATOR).orElseGet(() -> {
+                IdGenerator created = new IdGenerator();
+                created.setName(GENERATOR);
+                return created;
+            });
+            if (generator.getNextVal() < firstFree) {
+                log.info("Booking ids start at {}", firstFree);
+                generator.setNextVal(firstFree);
+                idGeneratorRepository.saveAndFlush(generator);
+            }
+        });
+    }
+}
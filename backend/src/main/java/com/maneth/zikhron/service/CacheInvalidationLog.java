@@ -0,0 +1,85 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.entity.CacheInvalidation;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+//Write side of the cross-node cache invalidation log. Every method must join the caller's transaction, so other nodes
+//only hear about a change once it has committed, and a rolled back change is never announced.
+//This node applies its own changes directly (AvailabilityCache, RoomSearchIndex, ...) and skips its own rows when polling.
+@Service
+public class CacheInvalidationLog {
+
+    private static final String INSERT = "INSERT INTO cache_invalidations " +
+            "(kind, entity_id, room_type, check_in_date, check_out_date, origin_node, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void availabilityChanged(List<RoomAvailabilityChangedEvent> changes) {
+        List<Object[]> rows = new ArrayList<>(changes.size());
+        changes.forEach(change -> rows.add(row(CacheInvalidation.Kind.AVAILABILITY, change.roomId(), change.roomType(),
+                change.checkInDate(), change.checkOutDate())));
+        append(rows);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void availabilityChanged(RoomAvailabilityChangedEvent change) {
+        availabilityChanged(List.of(change));
+    }
+
+    //the room row itself changed (added, edited or deleted); roomType is the type whose searches are affected
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void roomChanged(Long roomId, String roomType) {
+        append(List.<Object[]>of(row(CacheInvalidation.Kind.ROOM, roomId, roomType, null, null)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void userChanged(Long userId) {
+        append(List.<Object[]>of(row(CacheInvalidation.Kind.USER, userId, null, null, null)));
+    }
+
+    //a new booking whose confirmation code other nodes must add to their ConfirmationCodeFilter
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingCreated(Long bookingId) {
+        append(List.<Object[]>of(row(CacheInvalidation.Kind.BOOKING, bookingId, null, null, null)));
+    }
+
+    //a row of revoked_tokens that other nodes must load into their TokenRevocationList
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tokenRevoked(Long revokedTokenId) {
+        append(List.<Object[]>of(row(CacheInvalidation.Kind.REVOCATION, revokedTokenId, null, null, null)));
+    }
+
+    private Object[] row(CacheInvalidation.Kind kind, Long entityId, String roomType, LocalDate checkInDate, LocalDate checkOutDate) {
+        return new Object[]{kind.name(), entityId, roomType,
+                checkInDate == null ? null : Date.valueOf(checkInDate),
+                checkOutDate == null ? null : Date.valueOf(checkOutDate),
+                nodeId, Timestamp.valueOf(LocalDateTime.now())};
+    }
+
+    private void append(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.entity.CacheInvalidation;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.entity.User;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
+import com.maneth.zikhron.repo.CacheInvalidationRepository;
+import com.maneth.zikhron.repo.RoomRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+//Read side of the cross-node cache invalidation log: tails cache_invalidations by id (a primary key range scan) every pollMs
+//and drops what other nodes changed from this node's caches, so a remote change is visible here within about one poll.
+//Ids are handed out at insert but rows become visible at commit, so a skipped id may still show up; such gaps are
+//re-checked until gapGraceMs has passed. A node that could not poll for longer than the retention flushes everything.
+@Slf4j
+@Service
+@Lazy(false)
+public class CacheInvalidationPoller {
+
+    private static final String ROOM_TYPES_REGION = "room-types";
+    private static final String USERS_BY_EMAIL_REGION = "users-by-email";
+    private static final String AUTH_USERS_BY_EMAIL_REGION = "auth-users-by-email";
+
+    @Autowired
+    private CacheInvalidationRepository cacheInvalidationRepository;
+    @Autowired
+    private CacheInvalidationLog cacheInvalidationLog;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private RoomSearchIndex roomSearchIndex;
+    @Autowired
+    private AvailabilityCache availabilityCache;
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    @Autowired
+    private ConfirmationCodeFilter confirmationCodeFilter;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.invalidation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.cache.invalidation.gap-grace-ms:60000}")
+    private long gapGraceMillis;
+
+    @Value("${app.cache.invalidation.max-tracked-gaps:10000}")
+    private int maxTrackedGaps;
+
+    @Value("${app.cache.invalidation.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter applied;
+    private Counter fullFlushes;
+
+    private long lastSeenId;
+    private long lastPolledAt;
+    //ids skipped over while polling -> when to stop waiting for them
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        applied = Counter.builder("zikhron.cache.invalidations.applied")
+                .description("Changes made on other nodes dropped from this node's caches")
+                .register(meterRegistry);
+        fullFlushes = Counter.builder("zikhron.cache.invalidations.full-flushes")
+                .description("Times this node fell too far behind the log and cleared all caches")
+                .register(meterRegistry);
+        //caches are built fresh at startup, so only changes from here on matter
+        lastSeenId = transactionTemplate.execute(status -> cacheInvalidationRepository.findMaxId());
+        lastPolledAt = System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-ms:1000}")
+    public synchronized void poll() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            if (startedAt - lastPolledAt > retentionMinutes * 60_000) {
+                //rows this node never read may already be pruned
+                flushAll();
+            } else {
+                List<CacheInvalidation> batch;
+                do {
+                    batch = transactionTemplate.execute(status -> applyNext());
+                } while (batch != null && batch.size() == batchSize);
+                recheckGaps(startedAt);
+            }
+            lastPolledAt = startedAt;
+        } catch (Exception e) {
+            log.warn("Polling the cache invalidation log failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.prune-ms:600000}")
+    public void prune() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        transactionTemplate.executeWithoutResult(status -> cacheInvalidationRepository.deleteCreatedBefore(cutoff));
+    }
+
+    private List<CacheInvalidation> applyNext() {
+        List<CacheInvalidation> batch = cacheInvalidationRepository.findByIdGreaterThanOrderByIdAsc(lastSeenId, PageRequest.of(0, batchSize));
+        long deadline = System.currentTimeMillis() + gapGraceMillis;
+        boolean tooManyGaps = false;
+        for (CacheInvalidation change : batch) {
+            if (gaps.size() + (change.getId() - lastSeenId - 1) > maxTrackedGaps) {
+                tooManyGaps = true;
+            } else {
+                for (long skipped = lastSeenId + 1; skipped < change.getId(); skipped++) {
+                    gaps.put(skipped, deadline);
+                }
+            }
+            lastSeenId = change.getId();
+            apply(change);
+        }
+        if (tooManyGaps) {
+            flushAll();
+        }
+        return batch;
+    }
+
+    private void recheckGaps(long now) {
+        gaps.values().removeIf(deadline -> deadline < now);
+        if (gaps.isEmpty()) {
+            return;
+        }
+        List<Long> waitingFor = new ArrayList<>(gaps.keySet());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (CacheInvalidation change : cacheInvalidationRepository.findByIdInOrderByIdAsc(waitingFor)) {
+                gaps.remove(change.getId());
+                apply(change);
+            }
+        });
+    }
+
+    private void apply(CacheInvalidation change) {
+        if (cacheInvalidationLog.getNodeId().equals(change.getOriginNode())) {
+            return;
+        }
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        switch (change.getKind()) {
+            case AVAILABILITY -> eventPublisher.publishEvent(new RoomAvailabilityChangedEvent(change.getEntityId(),
+                    change.getRoomType(), change.getCheckInDate(), change.getCheckOutDate()));
+            case ROOM -> {
+                cache.evict(Room.class, change.getEntityId());
+                cache.evictQueryRegion(ROOM_TYPES_REGION);
+                roomRepository.findById(change.getEntityId()).ifPresentOrElse(roomSearchIndex::put,
+                        () -> roomSearchIndex.remove(change.getEntityId()));
+                eventPublisher.publishEvent(RoomAvailabilityChangedEvent.wholeRoom(change.getEntityId(), change.getRoomType()));
+            }
+            case USER -> {
+                cache.evict(User.class, change.getEntityId());
+                cache.evictQueryRegion(USERS_BY_EMAIL_REGION);
+                cache.evictQueryRegion(AUTH_USERS_BY_EMAIL_REGION);
+            }
+            case REVOCATION -> tokenRevocationList.load(change.getEntityId());
+            case BOOKING -> confirmationCodeFilter.load(change.getEntityId());
+        }
+        applied.increment();
+    }
+
+    private void flushAll() {
+        log.warn("Fell behind the cache invalidation log, clearing all local caches");
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        roomSearchIndex.rebuild();
+        availabilityCache.invalidateAll();
+        tokenRevocationList.reload();
+        confirmationCodeFilter.rebuild();
+        gaps.clear();
+        lastSeenId = Math.max(lastSeenId, transactionTemplate.execute(status -> cacheInvalidationRepository.findMaxId()));
+        fullFlushes.increment();
+    }
+}
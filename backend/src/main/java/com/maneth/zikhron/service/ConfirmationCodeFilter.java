@@ -0,0 +1,163 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.repo.BookingHistoryRepository;
+import com.maneth.zikhron.repo.BookingRepository;
+import com.maneth.zikhron.utils.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+//Bloom filter of every confirmation code in bookings and bookings_history, consulted before the public lookup by code
+//so guessed codes are turned away without a query. New bookings are added as they are saved (on other nodes through
+//the cache invalidation log). Cancelled codes cannot be removed from a Bloom filter and only cost a wasted query until the
+//daily rebuild, which also resizes the filter as bookings grow. Until the first build finishes every code is let through.
+@Slf4j
+@Service
+@Lazy(false)
+public class ConfirmationCodeFilter {
+
+    private static final long RECENT_MILLIS = 5 * 60_000;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.confirmation-codes.filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.confirmation-codes.filter.min-capacity:100000}")
+    private long minCapacity;
+
+    @Value("${app.confirmation-codes.filter.fpp:0.001}")
+    private double falsePositiveRate;
+
+    private final Object lock = new Object();
+    private volatile BloomFilter current;
+    //filter being rebuilt; codes saved meanwhile go into both
+    private BloomFilter next;
+    //codes added in the last few minutes, replayed into a rebuilt filter in case their transaction committed after
+    //the rebuild had already read past them
+    private final ArrayDeque<Map.Entry<Long, String>> recent = new ArrayDeque<>();
+
+    private TransactionTemplate transactionTemplate;
+    private Counter rejected;
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void init() {
+        //not read-only: the scan must run on the primary, a lagging replica would miss the latest codes
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        rejected = Counter.builder("zikhron.confirmation-codes.filter.rejected")
+                .description("Lookups answered as not found without querying the database")
+                .register(meterRegistry);
+        falsePositives = Counter.builder("zikhron.confirmation-codes.filter.false-positives")
+                .description("Lookups the filter let through that found no booking")
+                .register(meterRegistry);
+        Gauge.builder("zikhron.confirmation-codes.filter.fpp", this, filter -> filter.current == null ? 1.0 : filter.current.expectedFalsePositiveRate())
+                .description("Estimated false positive rate from the share of bits set")
+                .register(meterRegistry);
+        Gauge.builder("zikhron.confirmation-codes.filter.bytes", this, filter -> filter.current == null ? 0 : filter.current.sizeInBytes())
+                .register(meterRegistry);
+        Gauge.builder("zikhron.confirmation-codes.filter.entries", this, filter -> filter.current == null ? 0 : filter.current.insertions())
+                .register(meterRegistry);
+    }
+
+    //false means no booking has this code; true means there may be one
+    public boolean mightExist(String confirmationCode) {
+        BloomFilter filter = current;
+        if (filter == null || filter.mightContain(confirmationCode)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    //a booking saved on another node
+    public void load(Long bookingId) {
+        bookingRepository.findConfirmationCodeById(bookingId).ifPresent(this::add);
+    }
+
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public void add(String confirmationCode) {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            recent.addLast(Map.entry(now, confirmationCode));
+            while (recent.peekFirst().getKey() < now - RECENT_MILLIS) {
+                recent.removeFirst();
+            }
+            if (current != null) {
+                current.put(confirmationCode);
+            }
+            if (next != null) {
+                next.put(confirmationCode);
+            }
+        }
+    }
+
+    //before StartupWarmup, which holds readiness until its requests are done and expects the filter to be built
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void buildAtStartup() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${app.confirmation-codes.filter.rebuild-cron:0 15 4 * * *}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long size = transactionTemplate.execute(status -> bookingRepository.count() + bookingHistoryRepository.count());
+        long newCapacity = Math.max(minCapacity, size * 2);
+        BloomFilter filter = new BloomFilter(newCapacity, falsePositiveRate);
+        synchronized (lock) {
+            next = filter;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> codes = bookingRepository.streamAllConfirmationCodes()) {
+                    codes.filter(Objects::nonNull).forEach(filter::put);
+                }
+                try (Stream<String> codes = bookingHistoryRepository.streamAllConfirmationCodes()) {
+                    codes.filter(Objects::nonNull).forEach(filter::put);
+                }
+            });
+            synchronized (lock) {
+                recent.forEach(entry -> filter.put(entry.getValue()));
+                current = filter;
+            }
+            log.info("Built confirmation code filter with {} codes ({} KB) in {} ms", filter.insertions(),
+                    filter.sizeInBytes() / 1024, System.currentTimeMillis() - started);
+        } finally {
+            synchronized (lock) {
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.dto.Response;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+//Remembers the outcome of requests sent with an Idempotency-Key header so client retries replay the first result
+//instead of running the operation again. A retry that arrives while the original is still running waits for it.
+@Service
+public class IdempotencyStore {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.idempotency.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${app.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMillis;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    //every entry once, oldest first. An entry that was replaced (its key expired and ran again) or removed after a
+    //failure is still queued under its old position, and is skipped because it is no longer the key's current entry.
+    private final Queue<Queued> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private record Key(String user, String idempotencyKey) {
+    }
+
+    private record Queued(Key key, Entry entry) {
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<Response> result = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("zikhron.idempotency.entries", entries, Map::size).register(meterRegistry);
+    }
+
+    //fingerprint identifies the request payload; reusing a key for a different request is rejected rather than replayed.
+    public Response execute(String user, String idempotencyKey, String fingerprint, Supplier<Response> action) {
+        Key key = new Key(user, idempotencyKey);
+        Entry mine = new Entry(fingerprint);
+        Entry existing = entries.compute(key, (k, current) ->
+                current == null || current.expiresAt < System.currentTimeMillis() ? mine : current);
+
+        if (existing != mine) {
+            return replay(existing, fingerprint);
+        }
+        insertionOrder.add(new Queued(key, mine));
+
+        Response response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            entries.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+
+        if (response.getStatusCode() >= 500) {
+            //server-side failures are not remembered so the client can retry with the same key
+            entries.remove(key, mine);
+        } else {
+            mine.expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+        }
+        mine.result.complete(storedCopy(response));
+        trim();
+        return response;
+    }
+
+    private Response replay(Entry existing, String fingerprint) {
+        if (!existing.fingerprint.equals(fingerprint)) {
+            Response response = new Response();
+            response.setStatusCode(422);
+            response.setMessage("Idempotency-Key was already used for a different request");
+            return response;
+        }
+        try {
+            return existing.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            Response response = new Response();
+            response.setStatusCode(409);
+            response.setMessage("A request with this Idempotency-Key is still being processed");
+            return response;
+        } catch (ExecutionException e) {
+            Response response = new Response();
+            response.setStatusCode(500);
+            response.setMessage("Original request failed: " + e.getCause().getMessage());
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Response response = new Response();
+            response.setStatusCode(500);
+            response.setMessage("Interrupted while waiting for the original request");
+            return response;
+        }
+    }
+
+    private static Response storedCopy(Response response) {
+        Response stored = new Response();
+        stored.setStatusCode(response.getStatusCode());
+        stored.setMessage(response.getMessage());
+        stored.setBookingConfirmationCode(response.getBookingConfirmationCode());
+        return stored;
+    }
+
+    private void trim() {
+        long now = System.currentTimeMillis();
+        //still running: its caller completes it and retries may be waiting on it, so it goes back in the queue
+        List<Queued> inFlight = new ArrayList<>();
+        while (entries.size() > maxEntries) {
+            Queued oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            if (!oldest.entry().result.isDone() && entries.get(oldest.key()) == oldest.entry()) {
+                inFlight.add(oldest);
+            } else {
+                entries.remove(oldest.key(), oldest.entry());
+            }
+        }
+        insertionOrder.addAll(inFlight);
+        //drop expired and replaced entries from the head so the order queue does not outgrow the map
+        Queued head;
+        while ((head = insertionOrder.peek()) != null) {
+            if (entries.get(head.key()) == head.entry() && head.entry().expiresAt >= now) {
+                break;
+            }
+            insertionOrder.poll();
+            entries.remove(head.key(), head.entry());
+        }
+    }
+}
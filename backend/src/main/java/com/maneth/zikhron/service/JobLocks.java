@@ -0,0 +1,79 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.entity.JobLock;
+import com.maneth.zikhron.repo.JobLockRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+//Keeps a scheduled job to one node at a time through a lease row in job_locks. The node that moves lockedUntil forward
+//runs the job; the others skip that run. The lease is released when the job returns and otherwise runs out on its own,
+//so a node that dies mid-run blocks the job for at most one lease. Leases are measured on each node's clock, so they
+//should be far longer than both the job and any clock skew between nodes.
+@Slf4j
+@Service
+public class JobLocks {
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        //committed on its own, so the other nodes see the lease while the job is still running
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    //runs the job if no other node holds the lock; returns null without running it otherwise
+    public <T> T runLocked(String name, Duration lease, Supplier<T> job) {
+        if (!tryAcquire(name, lease)) {
+            log.info("Skipping {}: running on another node", name);
+            return null;
+        }
+        try {
+            return job.get();
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> jobLockRepository.release(name, owner, LocalDateTime.now()));
+        }
+    }
+
+    private boolean tryAcquire(String name, Duration lease) {
+        if (acquire(name, lease)) {
+            return true;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!jobLockRepository.existsById(name)) {
+                    JobLock jobLock = new JobLock();
+                    jobLock.setName(name);
+                    jobLock.setLockedUntil(LocalDateTime.now().minus(lease));
+                    jobLockRepository.saveAndFlush(jobLock);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            //another node created the row at the same moment
+        }
+        return acquire(name, lease);
+    }
+
+    private boolean acquire(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status -> jobLockRepository.acquire(name, owner, now, now.plus(lease)));
+        return updated != null && updated == 1;
+    }
+}
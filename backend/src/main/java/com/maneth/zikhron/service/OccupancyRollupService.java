@@ -0,0 +1,163 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.entity.Booking;
+import com.maneth.zikhron.repo.BookingHistoryRepository;
+import com.maneth.zikhron.repo.BookingRepository;
+import com.maneth.zikhron.repo.DailyOccupancyRollupRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+//Maintains occupancy_daily_rollups: one row per (night, room type) with nights sold and revenue.
+//Bookings and cancellations adjust the affected nights in the same transaction, both at the nightly price stored on the
+//booking. A nightly rebuild recomputes everything from the bookings so any drift does not accumulate; it works through
+//the stay dates a chunk at a time, each chunk in its own short transaction, so bookings only ever wait for one chunk.
+@Slf4j
+@Service
+@Lazy(false)
+public class OccupancyRollupService {
+
+    private static final String UPSERT = "INSERT INTO occupancy_daily_rollups (stay_date, room_type, room_nights_sold, revenue) " +
+            "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "room_nights_sold = room_nights_sold + VALUES(room_nights_sold), revenue = revenue + VALUES(revenue)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DailyOccupancyRollupRepository rollupRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.rollups.rebuild-chunk-days:31}")
+    private int chunkDays;
+
+    private TransactionTemplate transactionTemplate;
+
+    private record RollupKey(LocalDate stayDate, String roomType) {
+    }
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBooking(Booking booking) {
+        adjust(booking, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCancellation(Booking booking) {
+        adjust(booking, -1);
+    }
+
+    //rows shaped like BookingRepository.streamStaysForRollup: check-in, check-out, room type, nightly price
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCancellations(List<Object[]> stays) {
+        Map<RollupKey, BigDecimal[]> totals = new HashMap<>();
+        stays.forEach(stay -> accumulate(totals, (LocalDate) stay[0], (LocalDate) stay[1], (String) stay[2], (BigDecimal) stay[3]));
+        apply(totals, -1);
+    }
+
+    @Scheduled(cron = "${app.rollups.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        //covers the existing rollup rows as well as the stays, so rows left over from deleted bookings are cleared too
+        LocalDate[] range = transactionTemplate.execute(status -> rebuildRange());
+        int rows = 0;
+        if (range != null) {
+            for (LocalDate from = range[0]; from.isBefore(range[1]); from = from.plusDays(chunkDays)) {
+                rows += rebuildChunk(from, min(from.plusDays(chunkDays), range[1]));
+            }
+        }
+        log.info("Rebuilt {} occupancy rollup rows in {} ms", rows, System.currentTimeMillis() - started);
+    }
+
+    //[first, last) over bookings, archived bookings and rollup rows, or null when all three are empty
+    private LocalDate[] rebuildRange() {
+        LocalDate first = min(min(bookingRepository.findFirstCheckIn(), bookingHistoryRepository.findFirstCheckIn()),
+                rollupRepository.findFirstStayDate());
+        LocalDate lastRollup = rollupRepository.findLastStayDate();
+        LocalDate last = max(max(bookingRepository.findLastCheckOut(), bookingHistoryRepository.findLastCheckOut()),
+                lastRollup != null ? lastRollup.plusDays(1) : null);
+        return first != null && last != null ? new LocalDate[]{first, last} : null;
+    }
+
+    private int rebuildChunk(LocalDate from, LocalDate to) {
+        Integer rows = transactionTemplate.execute(status -> {
+            //deleting first locks the chunk's rollup rows, so bookings committing meanwhile wait and then apply on top of it
+            rollupRepository.deleteStayDates(from, to);
+            Map<RollupKey, BigDecimal[]> totals = new HashMap<>();
+            try (Stream<Object[]> stays = bookingRepository.streamStaysForRollup(from, to)) {
+                stays.forEach(stay -> accumulate(totals, max((LocalDate) stay[0], from), min((LocalDate) stay[1], to),
+                        (String) stay[2], (BigDecimal) stay[3]));
+            }
+            try (Stream<Object[]> stays = bookingHistoryRepository.streamStaysForRollup(from, to)) {
+                stays.forEach(stay -> accumulate(totals, max((LocalDate) stay[0], from), min((LocalDate) stay[1], to),
+                        (String) stay[2], (BigDecimal) stay[3]));
+            }
+            apply(totals, 1);
+            return totals.size();
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private void adjust(Booking booking, int direction) {
+        Map<RollupKey, BigDecimal[]> totals = new HashMap<>();
+        BigDecimal nightlyPrice = booking.getNightlyPrice() != null ? booking.getNightlyPrice() : booking.getRoom().getRoomPrice();
+        accumulate(totals, booking.getCheckInDate(), booking.getCheckOutDate(), booking.getRoom().getRoomType(), nightlyPrice);
+        apply(totals, direction);
+    }
+
+    private void apply(Map<RollupKey, BigDecimal[]> totals, int direction) {
+        if (totals.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        BigDecimal sign = BigDecimal.valueOf(direction);
+        totals.forEach((key, sums) -> rows.add(new Object[]{Date.valueOf(key.stayDate()), key.roomType(),
+                sums[0].longValue() * direction, sums[1].multiply(sign)}));
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+
+    //a stay occupies the nights from check-in up to, but not including, check-out
+    private static void accumulate(Map<RollupKey, BigDecimal[]> totals, LocalDate checkIn, LocalDate checkOut,
+                                   String roomType, BigDecimal nightlyPrice) {
+        if (roomType == null) {
+            return;
+        }
+        BigDecimal price = nightlyPrice != null ? nightlyPrice : BigDecimal.ZERO;
+        for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+            BigDecimal[] sums = totals.computeIfAbsent(new RollupKey(night, roomType), k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            sums[0] = sums[0].add(BigDecimal.ONE);
+            sums[1] = sums[1].add(price);
+        }
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a == null ? b : b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a == null ? b : b == null || a.isAfter(b) ? a : b;
+    }
+}
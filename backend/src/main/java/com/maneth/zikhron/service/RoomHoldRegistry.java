@@ -0,0 +1,216 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.event.HoldConvertedEvent;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Short-lived reservations of a room for a date range while the guest fills in the booking form.
+//Holds live only in memory and expire through a hashed timer wheel: each tick sweeps one slot instead of scanning every hold.
+//Single node only: a hold is invisible to the other nodes, so it does not stop them from holding or booking the same
+//room, and the availability check and the hold/booking it guards are not atomic across nodes. With several nodes the
+//guarantee holds only while each guest's hold and booking requests reach the same node (sticky sessions).
+@Slf4j
+@Service
+public class RoomHoldRegistry {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.holds.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    @Value("${app.holds.tick-millis:1000}")
+    private long tickMillis;
+
+    @Value("${app.holds.wheel-slots:512}")
+    private int wheelSlots;
+
+    private final Map<String, RoomHold> holdsById = new ConcurrentHashMap<>();
+    private final Map<Long, Set<RoomHold>> holdsByRoom = new ConcurrentHashMap<>();
+    private List<Set<RoomHold>> wheel;
+    private ScheduledExecutorService sweeper;
+    private long lastSweptTick;
+
+    private Counter created;
+    private Counter converted;
+    private Counter expired;
+    private Counter released;
+
+    public record RoomHold(String holdId, Long roomId, String roomType, Long userId,
+                           LocalDate checkInDate, LocalDate checkOutDate, long expiresAt) {
+
+        boolean overlaps(LocalDate checkIn, LocalDate checkOut) {
+            return !checkInDate.isAfter(checkOut) && !checkOutDate.isBefore(checkIn);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        wheel = new ArrayList<>(wheelSlots);
+        for (int i = 0; i < wheelSlots; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+
+        created = Counter.builder("zikhron.holds.created").register(meterRegistry);
+        converted = Counter.builder("zikhron.holds.converted").description("Holds turned into bookings").register(meterRegistry);
+        expired = Counter.builder("zikhron.holds.expired").register(meterRegistry);
+        released = Counter.builder("zikhron.holds.released").register(meterRegistry);
+        Gauge.builder("zikhron.holds.active", holdsById, Map::size).register(meterRegistry);
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "room-hold-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(this::sweep, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    //Returns empty when another live hold already covers part of the range.
+    public Optional<RoomHold> create(Long roomId, String roomType, Long userId, LocalDate checkInDate, LocalDate checkOutDate) {
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+        RoomHold hold = new RoomHold(UUID.randomUUID().toString(), roomId, roomType, userId, checkInDate, checkOutDate, expiresAt);
+
+        boolean[] added = new boolean[1];
+        holdsByRoom.compute(roomId, (id, holds) -> {
+            Set<RoomHold> roomHolds = holds != null ? holds : ConcurrentHashMap.newKeySet();
+            long now = System.currentTimeMillis();
+            if (roomHolds.stream().noneMatch(h -> h.expiresAt() > now && h.overlaps(checkInDate, checkOutDate))) {
+                roomHolds.add(hold);
+                holdsById.put(hold.holdId(), hold);
+                slotFor(hold).add(hold);
+                added[0] = true;
+            }
+            return roomHolds;
+        });
+        if (!added[0]) {
+            return Optional.empty();
+        }
+        created.increment();
+        eventPublisher.publishEvent(new RoomAvailabilityChangedEvent(roomId, roomType, checkInDate, checkOutDate));
+        return Optional.of(hold);
+    }
+
+    public Optional<RoomHold> find(String holdId) {
+        RoomHold hold = holdsById.get(holdId);
+        if (hold == null || hold.expiresAt() <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(hold);
+    }
+
+    //Dropped only once the booking for the hold has committed; the booking itself now keeps the room occupied.
+    //A booking that rolls back leaves the hold in place for the guest to try again.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHoldConverted(HoldConvertedEvent event) {
+        convert(event.holdId());
+    }
+
+    public void convert(String holdId) {
+        if (removeHold(holdId) != null) {
+            converted.increment();
+        }
+    }
+
+    public boolean release(String holdId) {
+        RoomHold hold = removeHold(holdId);
+        if (hold == null) {
+            return false;
+        }
+        released.increment();
+        publishFreed(hold);
+        return true;
+    }
+
+    public boolean isHeld(Long roomId, LocalDate checkInDate, LocalDate checkOutDate, String ignoredHoldId) {
+        Set<RoomHold> holds = holdsByRoom.get(roomId);
+        if (holds == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        return holds.stream().anyMatch(h -> !h.holdId().equals(ignoredHoldId)
+                && h.expiresAt() > now && h.overlaps(checkInDate, checkOutDate));
+    }
+
+    public Set<Long> heldRoomIds(LocalDate checkInDate, LocalDate checkOutDate) {
+        Set<Long> roomIds = new HashSet<>();
+        long now = System.currentTimeMillis();
+        for (RoomHold hold : holdsById.values()) {
+            if (hold.expiresAt() > now && hold.overlaps(checkInDate, checkOutDate)) {
+                roomIds.add(hold.roomId());
+            }
+        }
+        return roomIds;
+    }
+
+    private void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            long currentTick = now / tickMillis;
+            //catch up on slots skipped by a late tick, but never go round the wheel more than once
+            long fromTick = lastSweptTick == 0 ? currentTick : Math.max(lastSweptTick + 1, currentTick - wheelSlots + 1);
+            for (long tick = fromTick; tick <= currentTick; tick++) {
+                for (RoomHold hold : wheel.get((int) (tick % wheelSlots))) {
+                    //holds more than one wheel rotation away share the slot and are left for a later pass
+                    if (hold.expiresAt() <= now && removeHold(hold.holdId()) != null) {
+                        expired.increment();
+                        publishFreed(hold);
+                    }
+                }
+            }
+            lastSweptTick = currentTick;
+        } catch (RuntimeException e) {
+            //caught so the scheduled sweep keeps running
+            log.error("Room hold sweep failed", e);
+        }
+    }
+
+    private RoomHold removeHold(String holdId) {
+        RoomHold hold = holdsById.remove(holdId);
+        if (hold == null) {
+            return null;
+        }
+        slotFor(hold).remove(hold);
+        holdsByRoom.computeIfPresent(hold.roomId(), (id, holds) -> {
+            holds.remove(hold);
+            return holds.isEmpty() ? null : holds;
+        });
+        return hold;
+    }
+
+    private void publishFreed(RoomHold hold) {
+        eventPublisher.publishEvent(new RoomAvailabilityChangedEvent(hold.roomId(), hold.roomType(), hold.checkInDate(), hold.checkOutDate()));
+    }
+
+    private Set<RoomHold> slotFor(RoomHold hold) {
+        //rounded up so the slot is swept at or after the expiry instant, never before it
+        return wheel.get(slotIndex(hold.expiresAt() + tickMillis - 1));
+    }
+
+    private int slotIndex(long epochMillis) {
+        return (int) ((epochMillis / tickMillis) % wheelSlots);
+    }
+}
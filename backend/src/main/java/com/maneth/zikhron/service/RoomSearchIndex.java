@@ -0,0 +1,232 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.dto.RoomDTO;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.event.RoomChangedEvent;
+import com.maneth.zikhron.repo.RoomRepository;
+import com.maneth.zikhron.utils.Utils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//In-memory inverted index over the room catalog. Rooms are few and change rarely, so searches by type, price and
+//description keywords are answered here instead of scanning the rooms table with LIKE '%...%'.
+@Service
+public class RoomSearchIndex {
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    private final Map<Long, RoomDTO> rooms = new HashMap<>();
+    private final Map<String, Set<Long>> roomsByType = new HashMap<>();
+    private final Map<String, Set<Long>> roomsByKeyword = new HashMap<>();
+    private final TreeMap<BigDecimal, Set<Long>> roomsByPrice = new TreeMap<>();
+    private final Map<String, String> displayTypes = new TreeMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        List<Room> roomList = roomRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+            roomsByType.clear();
+            roomsByKeyword.clear();
+            roomsByPrice.clear();
+            displayTypes.clear();
+            roomList.forEach(this::addToIndex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Room room) {
+        lock.writeLock().lock();
+        try {
+            removeFromIndex(room.getId());
+            addToIndex(room);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long roomId) {
+        lock.writeLock().lock();
+        try {
+            removeFromIndex(roomId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //applied once the room change has committed, so searches never list a room whose transaction rolled back.
+    //RoomService publishes this before the availability change, so the index is current when the availability cache drops
+    //the room type's searches
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomChanged(RoomChangedEvent event) {
+        if (event.room() == null) {
+            remove(event.roomId());
+        } else {
+            put(event.room());
+        }
+    }
+
+    public List<String> getRoomTypes() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(displayTypes.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //keyed by normalized room type
+    public Map<String, Long> countRoomsByType() {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new HashMap<>();
+            roomsByType.forEach((type, ids) -> counts.put(type, (long) ids.size()));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //All criteria are optional. excludedRoomIds is used by the availability search to drop rooms booked for the dates.
+    public List<RoomDTO> search(String roomType, BigDecimal minPrice, BigDecimal maxPrice, String keyword,
+                                Sort.Direction priceSort, Set<Long> excludedRoomIds) {
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = null;
+
+            if (roomType != null && !roomType.isBlank()) {
+                candidates = intersect(candidates, roomsByType.getOrDefault(normalizeType(roomType), Set.of()));
+            }
+            if (keyword != null && !keyword.isBlank()) {
+                for (String token : tokenize(keyword)) {
+                    candidates = intersect(candidates, roomsByKeyword.getOrDefault(token, Set.of()));
+                }
+            }
+            if (minPrice != null || maxPrice != null) {
+                Set<Long> inRange = new HashSet<>();
+                pricesBetween(minPrice, maxPrice).values().forEach(inRange::addAll);
+                candidates = intersect(candidates, inRange);
+            }
+
+            List<RoomDTO> result = new ArrayList<>();
+            if (candidates == null) {
+                candidates = rooms.keySet();
+            }
+            for (Long roomId : candidates) {
+                if (excludedRoomIds == null || !excludedRoomIds.contains(roomId)) {
+                    result.add(rooms.get(roomId));
+                }
+            }
+
+            Comparator<RoomDTO> order = Comparator.comparing(RoomDTO::getId).reversed();
+            if (priceSort != null) {
+                Comparator<RoomDTO> byPrice = Comparator.comparing(RoomDTO::getRoomPrice, Comparator.nullsLast(Comparator.naturalOrder()));
+                order = (priceSort == Sort.Direction.DESC ? byPrice.reversed() : byPrice).thenComparing(order);
+            }
+            result.sort(order);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String normalizeType(String roomType) {
+        return roomType.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void addToIndex(Room room) {
+        RoomDTO roomDTO = Utils.mapRoomEntityToRoomDTO(room);
+        rooms.put(room.getId(), roomDTO);
+        if (room.getRoomType() != null) {
+            String type = normalizeType(room.getRoomType());
+            roomsByType.computeIfAbsent(type, k -> new HashSet<>()).add(room.getId());
+            displayTypes.putIfAbsent(type, room.getRoomType().trim());
+        }
+        if (room.getRoomPrice() != null) {
+            roomsByPrice.computeIfAbsent(room.getRoomPrice(), k -> new HashSet<>()).add(room.getId());
+        }
+        for (String token : tokenize(room.getRoomDescription())) {
+            roomsByKeyword.computeIfAbsent(token, k -> new HashSet<>()).add(room.getId());
+        }
+    }
+
+    private void removeFromIndex(Long roomId) {
+        RoomDTO old = rooms.remove(roomId);
+        if (old == null) {
+            return;
+        }
+        if (old.getRoomType() != null) {
+            String type = normalizeType(old.getRoomType());
+            if (removeId(roomsByType, type, roomId)) {
+                displayTypes.remove(type);
+            }
+        }
+        if (old.getRoomPrice() != null) {
+            removeId(roomsByPrice, old.getRoomPrice(), roomId);
+        }
+        for (String token : tokenize(old.getRoomDescription())) {
+            removeId(roomsByKeyword, token, roomId);
+        }
+    }
+
+    //returns true when the posting list became empty and was dropped
+    private static <K> boolean removeId(Map<K, Set<Long>> postings, K key, Long roomId) {
+        Set<Long> ids = postings.get(key);
+        if (ids == null) {
+            return false;
+        }
+        ids.remove(roomId);
+        if (ids.isEmpty()) {
+            postings.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    private NavigableMap<BigDecimal, Set<Long>> pricesBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice != null && maxPrice != null) {
+            if (minPrice.compareTo(maxPrice) > 0) {
+                return Collections.emptyNavigableMap();
+            }
+            return roomsByPrice.subMap(minPrice, true, maxPrice, true);
+        }
+        if (minPrice != null) {
+            return roomsByPrice.tailMap(minPrice, true);
+        }
+        return roomsByPrice.headMap(maxPrice, true);
+    }
+
+    private static Set<Long> intersect(Set<Long> candidates, Set<Long> postings) {
+        if (candidates == null) {
+            return new HashSet<>(postings);
+        }
+        candidates.retainAll(postings);
+        return candidates;
+    }
+
+    private static Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Set.of();
+        }
+        Set<String> tokens = new HashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,201 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.repo.RoomRepository;
+import com.maneth.zikhron.security.AuthUser;
+import com.maneth.zikhron.service.interfac.IRoomService;
+import com.maneth.zikhron.utils.JWTUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Warms a fresh instance before it takes traffic: loads the room catalog and room types into the second level cache,
+//runs the JWT sign/parse path once, then sends a weighted mix of GET requests to this instance's own public endpoints so
+//the JIT compiles the request path (security filters, Jackson, Utils mapping, availability checks). The default mix runs
+//the availability checks through /rooms/search, which is not cached: random dates sent to the cached
+//available-rooms-by-date-and-type endpoint would fill the availability cache with entries no guest asked for and push
+//out the ones they did. Boot only marks the instance ACCEPTING_TRAFFIC once every ApplicationReadyEvent listener has
+//returned, so the readiness probe stays down until warm-up finishes or the time budget runs out, whichever is first.
+//Requests are "weight:path" entries; {checkIn}, {checkOut}, {roomType} and {roomId} are filled in per request.
+@Slf4j
+@Service
+@Lazy(false)
+public class StartupWarmup {
+
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private IRoomService roomService;
+    @Autowired
+    private RoomSearchIndex roomSearchIndex;
+    @Autowired
+    private JWTUtils jwtUtils;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.budget-ms:60000}")
+    private long budgetMillis;
+
+    @Value("${app.warmup.request-count:500}")
+    private int requestCount;
+
+    @Value("${app.warmup.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.warmup.requests:4:/rooms/all,2:/rooms/types,2:/rooms/all-available-rooms,2:/rooms/room-by-id/{roomId}," +
+            "9:/rooms/search?roomType={roomType}&checkInDate={checkIn}&checkOutDate={checkOut}}")
+    private List<String> requests;
+
+    private record WeightedPath(int weight, String path) {
+    }
+
+    private volatile boolean stopped;
+
+    //ConfirmationCodeFilter builds at HIGHEST_PRECEDENCE, so the filter is complete before any warm-up request runs
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUp(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(event.getApplicationContext(), ReadinessState.REFUSING_TRAFFIC);
+        int port = event.getApplicationContext() instanceof WebServerApplicationContext webContext ? webContext.getWebServer().getPort() : -1;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency + 1, runnable -> {
+            Thread thread = new Thread(runnable, "warmup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long started = System.nanoTime();
+        String outcome = "completed";
+        try {
+            workers.submit(() -> run(workers, port)).get(budgetMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            outcome = "budget-exceeded";
+        } catch (Exception e) {
+            outcome = "failed";
+            log.warn("Warm-up failed: {}", e.getMessage());
+        } finally {
+            stopped = true;
+            workers.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - started;
+        Timer.builder("zikhron.warmup.duration")
+                .description("Time from application ready to accepting traffic")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warm-up {} in {} ms", outcome, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private Void run(ExecutorService workers, int port) throws Exception {
+        long step = System.nanoTime();
+        List<Long> roomIds = preload();
+        log.info("Preloaded {} rooms in {} ms", roomIds.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - step));
+
+        //first use loads the jjwt serializer and parser and the HMAC key
+        jwtUtils.extractAllClaims(jwtUtils.generateToken(new AuthUser(0L, "warmup@localhost", "", "USER")));
+
+        List<WeightedPath> mix = parse(requests);
+        if (port <= 0 || mix.isEmpty() || requestCount <= 0) {
+            return null;
+        }
+        step = System.nanoTime();
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(5000);
+        requestFactory.setReadTimeout(30000);
+        RestClient restClient = RestClient.builder().requestFactory(requestFactory).baseUrl("http://localhost:" + port).build();
+        List<String> roomTypes = roomSearchIndex.getRoomTypes();
+        int totalWeight = mix.stream().mapToInt(WeightedPath::weight).sum();
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            running.add(workers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stopped && sent.getAndIncrement() < requestCount) {
+                    String path = pick(mix, random.nextInt(totalWeight));
+                    LocalDate checkIn = LocalDate.now().plusDays(random.nextInt(1, 90));
+                    Map<String, Object> variables = new HashMap<>();
+                    variables.put("checkIn", checkIn);
+                    variables.put("checkOut", checkIn.plusDays(random.nextInt(1, 8)));
+                    variables.put("roomType", roomTypes.isEmpty() ? "" : roomTypes.get(random.nextInt(roomTypes.size())));
+                    variables.put("roomId", roomIds.isEmpty() ? 0 : roomIds.get(random.nextInt(roomIds.size())));
+                    try {
+                        restClient.get().uri(path, variables).retrieve().toBodilessEntity();
+                    } catch (RestClientException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : running) {
+            worker.get();
+        }
+        log.info("Sent {} warm-up requests ({} failed) in {} ms", Math.min(sent.get(), requestCount), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - step));
+        return null;
+    }
+
+    private List<Long> preload() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        List<Long> roomIds = readOnly.execute(status -> roomRepository.findAll().stream().map(Room::getId).toList());
+        roomService.getAllRoomTypes();
+        return roomIds;
+    }
+
+    private static List<WeightedPath> parse(List<String> entries) {
+        List<WeightedPath> mix = new ArrayList<>();
+        for (String entry : entries) {
+            int colon = entry.indexOf(':');
+            try {
+                int weight = colon > 0 ? Integer.parseInt(entry.substring(0, colon).trim()) : 1;
+                if (weight > 0) {
+                    mix.add(new WeightedPath(weight, entry.substring(colon + 1).trim()));
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring warm-up request '{}': weight is not a number", entry);
+            }
+        }
+        return mix;
+    }
+
+    private static String pick(List<WeightedPath> mix, int ticket) {
+        for (WeightedPath candidate : mix) {
+            ticket -= candidate.weight();
+            if (ticket < 0) {
+                return candidate.path();
+            }
+        }
+        return mix.get(mix.size() - 1).path();
+    }
+}
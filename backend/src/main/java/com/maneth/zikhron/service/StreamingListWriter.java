@@ -0,0 +1,117 @@
+package com.maneth.zikhron.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+//Writes a list endpoint straight from a streamed query to the response body, one row at a time, producing the same JSON
+//as a Response holding the whole list: {"statusCode":200,"message":"successful","<listField>":[...]}.
+//Neither the entity list nor the DTO list is ever materialized, and the persistence context is cleared as rows go by.
+//Clients that send Accept: application/cbor or application/x-jackson-smile get the same document in that binary encoding.
+//A failure mid-stream is logged and rethrown without closing the document, so the container drops the connection and
+//the client sees a broken transfer rather than a shorter list that looks complete.
+@Slf4j
+@Service
+public class StreamingListWriter {
+
+    private static final int CLEAR_EVERY_ROWS = 500;
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    private static final List<MediaType> FORMATS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Map<MediaType, ObjectMapper> mappers;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        mappers = Map.of(MediaType.APPLICATION_JSON, objectMapper,
+                MediaType.APPLICATION_CBOR, objectMapper.copyWith(new CBORFactory()),
+                APPLICATION_SMILE, objectMapper.copyWith(new SmileFactory()));
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    //the first supported type in the Accept header, JSON when there is none (wildcards and quality values are not weighed)
+    public static MediaType negotiate(String accept) {
+        if (accept != null && !accept.isBlank()) {
+            for (MediaType requested : MediaType.parseMediaTypes(accept)) {
+                for (MediaType format : FORMATS) {
+                    if (format.isCompatibleWith(requested) && !requested.isWildcardType()) {
+                        return format;
+                    }
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    public <E> void write(OutputStream out, MediaType format, String listField, Supplier<Stream<E>> rows, Function<E, ?> mapper) {
+        ObjectMapper formatMapper = mappers.getOrDefault(format, objectMapper);
+        ObjectWriter rowWriter = formatMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            int[] written = {0};
+            try (Stream<E> stream = rows.get();
+                 JsonGenerator generator = formatMapper.getFactory().createGenerator(out)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartObject();
+                generator.writeNumberField("statusCode", 200);
+                generator.writeStringField("message", "successful");
+                generator.writeArrayFieldStart(listField);
+
+                stream.forEach(row -> {
+                    writeRow(rowWriter, generator, mapper.apply(row));
+                    if (++written[0] % CLEAR_EVERY_ROWS == 0) {
+                        entityManager.clear();
+                    }
+                });
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+            } catch (IOException | UncheckedIOException e) {
+                //usually the client going away
+                log.warn("Streaming {} stopped after {} rows: {}", listField, written[0], e.getMessage());
+                throw e instanceof IOException io ? new UncheckedIOException(io) : (UncheckedIOException) e;
+            } catch (RuntimeException e) {
+                log.error("Streaming {} failed after {} rows", listField, written[0], e);
+                throw e;
+            }
+        });
+    }
+
+    private void writeRow(ObjectWriter rowWriter, JsonGenerator generator, Object row) {
+        try {
+            rowWriter.writeValue(generator, row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.entity.RevokedToken;
+import com.maneth.zikhron.event.TokenRevokedEvent;
+import com.maneth.zikhron.repo.RevokedTokenRepository;
+import com.maneth.zikhron.utils.BloomFilter;
+import com.maneth.zikhron.utils.JWTUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Revoked JWTs, checked by JWTAuthFilter on every authenticated request. Lookups are hash map reads behind an "anything
+//revoked at all" flag and an optional Bloom filter, so the usual case of a token that was never revoked costs a few
+//nanoseconds and no database call. Entries are grouped into buckets by expiry and dropped a bucket at a time once the
+//tokens they cover have expired anyway. Revocations are stored in revoked_tokens, reloaded at startup and announced to
+//other nodes through the cache invalidation log.
+@Slf4j
+@Service
+@Lazy(false)
+public class TokenRevocationList {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    @Autowired
+    private CacheInvalidationLog cacheInvalidationLog;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auth.revocation.bucket-minutes:60}")
+    private long bucketMinutes;
+
+    @Value("${app.auth.revocation.bloom-filter.enabled:true}")
+    private boolean bloomFilterEnabled;
+
+    @Value("${app.auth.revocation.bloom-filter.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${app.auth.revocation.bloom-filter.fpp:0.01}")
+    private double falsePositiveRate;
+
+    //jti -> expiry bucket
+    private final Map<String, Long> revokedTokenIds = new ConcurrentHashMap<>();
+    //subject -> epoch millis; tokens of that subject issued up to then are revoked
+    private final Map<String, Long> revokedSubjects = new ConcurrentHashMap<>();
+    //expiry bucket -> entries to drop when it has passed; guarded by this
+    private final TreeMap<Long, List<RevokedToken>> buckets = new TreeMap<>();
+
+    private volatile boolean empty = true;
+    private volatile BloomFilter bloomFilter;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        rejected = Counter.builder("zikhron.auth.revocation.rejected")
+                .description("Requests carrying a revoked token")
+                .register(meterRegistry);
+        Gauge.builder("zikhron.auth.revocation.entries", revokedTokenIds, Map::size).register(meterRegistry);
+        reload();
+    }
+
+    //adds every unexpired revocation in the table; used at startup and when this node missed part of the invalidation log
+    public void reload() {
+        List<RevokedToken> live = transactionTemplate.execute(status -> revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now()));
+        synchronized (this) {
+            live.forEach(this::add);
+            rebuildBloomFilter();
+        }
+        log.info("Loaded {} token revocations", live.size());
+    }
+
+    public boolean isRevoked(String tokenId, String subject, Date issuedAt) {
+        if (empty) {
+            return false;
+        }
+        boolean revoked = false;
+        if (tokenId != null) {
+            BloomFilter filter = bloomFilter;
+            revoked = (filter == null || filter.mightContain(tokenId)) && revokedTokenIds.containsKey(tokenId);
+        }
+        if (!revoked && subject != null && !revokedSubjects.isEmpty()) {
+            Long revokedAt = revokedSubjects.get(subject);
+            revoked = revokedAt != null && issuedAt != null && issuedAt.getTime() <= revokedAt;
+        }
+        if (revoked) {
+            rejected.increment();
+        }
+        return revoked;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revokeToken(String tokenId, String subject, Date expiresAt) {
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setTokenId(tokenId);
+        revokedToken.setSubject(subject);
+        revokedToken.setRevokedAt(LocalDateTime.now());
+        revokedToken.setExpiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+        persist(revokedToken);
+    }
+
+    //every token issued to the subject so far; they all expire within the token lifetime
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void revokeAllFor(String subject) {
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setSubject(subject);
+        revokedToken.setRevokedAt(LocalDateTime.now());
+        revokedToken.setExpiresAt(revokedToken.getRevokedAt().plusNanos(JWTUtils.EXPIRATION_TIME * 1_000_000));
+        persist(revokedToken);
+    }
+
+    //a revocation made on another node
+    public void load(Long revokedTokenId) {
+        revokedTokenRepository.findById(revokedTokenId).ifPresent(revokedToken -> {
+            synchronized (this) {
+                add(revokedToken);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.revocation.sweep-ms:300000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            SortedMap<Long, List<RevokedToken>> expired = buckets.headMap(bucketOf(now));
+            if (!expired.isEmpty()) {
+                expired.values().forEach(entries -> entries.forEach(this::remove));
+                expired.clear();
+                empty = revokedTokenIds.isEmpty() && revokedSubjects.isEmpty();
+                //a Bloom filter cannot forget keys
+                rebuildBloomFilter();
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> revokedTokenRepository.deleteExpired(LocalDateTime.now()));
+    }
+
+    private void persist(RevokedToken revokedToken) {
+        revokedTokenRepository.save(revokedToken);
+        cacheInvalidationLog.tokenRevoked(revokedToken.getId());
+        eventPublisher.publishEvent(new TokenRevokedEvent(revokedToken));
+    }
+
+    //applied once the revocation has committed, the same moment the other nodes can see it, so a logout or user deletion
+    //that rolls back leaves this node accepting the token like every other node
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        synchronized (this) {
+            add(event.revokedToken());
+        }
+    }
+
+    private void add(RevokedToken revokedToken) {
+        long bucket = bucketOf(toMillis(revokedToken.getExpiresAt())) + 1;
+        if (revokedToken.getTokenId() != null) {
+            revokedTokenIds.put(revokedToken.getTokenId(), bucket);
+            if (bloomFilter != null) {
+                bloomFilter.put(revokedToken.getTokenId());
+            }
+        } else {
+            revokedSubjects.merge(revokedToken.getSubject(), toMillis(revokedToken.getRevokedAt()), Math::max);
+        }
+        buckets.computeIfAbsent(bucket, k -> new ArrayList<>()).add(revokedToken);
+        empty = false;
+    }
+
+    private void remove(RevokedToken revokedToken) {
+        if (revokedToken.getTokenId() != null) {
+            revokedTokenIds.remove(revokedToken.getTokenId());
+        } else {
+            //a later revocation of the same subject lives on in its own bucket
+            revokedSubjects.remove(revokedToken.getSubject(), toMillis(revokedToken.getRevokedAt()));
+        }
+    }
+
+    private void rebuildBloomFilter() {
+        if (!bloomFilterEnabled) {
+            return;
+        }
+        BloomFilter filter = new BloomFilter(Math.max(expectedInsertions, 2L * revokedTokenIds.size()), falsePositiveRate);
+        revokedTokenIds.keySet().forEach(filter::put);
+        bloomFilter = filter;
+    }
+
+    private long bucketOf(long epochMillis) {
+        return epochMillis / (bucketMinutes * 60_000);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,69 @@
+package com.maneth.zikhron.service.impl;
+
+import com.maneth.zikhron.dto.AuditEntryDTO;
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.entity.AuditEntry;
+import com.maneth.zikhron.exception.OurException;
+import com.maneth.zikhron.repo.AuditEntryRepository;
+import com.maneth.zikhron.service.interfac.IAuditService;
+import com.maneth.zikhron.utils.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class AuditService implements IAuditService {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private AuditEntryRepository auditEntryRepository;
+
+    //Newest first. 'to' is exclusive; entries are written asynchronously, so the last second or so may not be there yet.
+    @Override
+    @Transactional(readOnly = true)
+    public Response getAuditLog(LocalDateTime from, LocalDateTime to, String action, String actor, Long entityId, int page, int size) {
+        Response response = new Response();
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        try {
+            AuditEntry.Action actionFilter = null;
+            if (action != null && !action.isBlank()) {
+                try {
+                    actionFilter = AuditEntry.Action.valueOf(action.trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new OurException("Unknown audit action: " + action);
+                }
+            }
+            Page<AuditEntry> entries = auditEntryRepository.search(from == null ? EARLIEST : from, to == null ? LATEST : to,
+                    actionFilter, actor == null || actor.isBlank() ? null : actor.trim(), entityId,
+                    PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "occurredAt", "id")));
+            List<AuditEntryDTO> auditLog = entries.stream().map(Utils::mapAuditEntryToAuditEntryDTO).toList();
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setAuditLog(auditLog);
+            response.setPageNumber(page);
+            response.setPageSize(size);
+            response.setTotalElements(entries.getTotalElements());
+            response.setTotalPages(entries.getTotalPages());
+
+        } catch (OurException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error getting audit log " + e.getMessage());
+        }
+        return response;
+    }
+}
@@ -1,22 +1,46 @@
 package com.maneth.zikhron.service.impl;
 
 import com.maneth.zikhron.dto.BookingDTO;
+import com.maneth.zikhron.dto.HoldRequest;
 import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.entity.AuditEntry;
 import com.maneth.zikhron.entity.Booking;
+import com.maneth.zikhron.entity.BookingHistory;
 import com.maneth.zikhron.entity.Room;
 import com.maneth.zikhron.entity.User;
+import com.maneth.zikhron.event.AuditEvent;
+import com.maneth.zikhron.event.HoldConvertedEvent;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
 import com.maneth.zikhron.exception.OurException;
+import com.maneth.zikhron.repo.BookingHistoryRepository;
 import com.maneth.zikhron.repo.BookingRepository;
 import com.maneth.zikhron.repo.RoomRepository;
 import com.maneth.zikhron.repo.UserRepository;
+import com.maneth.zikhron.service.BookingIdAllocator;
+import com.maneth.zikhron.service.CacheInvalidationLog;
+import com.maneth.zikhron.service.ConfirmationCodeFilter;
+import com.maneth.zikhron.service.OccupancyRollupService;
+import com.maneth.zikhron.service.RoomHoldRegistry;
+import com.maneth.zikhron.service.StreamingListWriter;
+import com.maneth.zikhron.service.notification.NotificationOutbox;
 import com.maneth.zikhron.service.interfac.IBookingService;
 import com.maneth.zikhron.service.interfac.IRoomService;
+import com.maneth.zikhron.utils.ConfirmationCodeCodec;
+import com.maneth.zikhron.utils.FieldSet;
 import com.maneth.zikhron.utils.Utils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 @Service
 public class BookingService implements IBookingService {
@@ -24,15 +48,40 @@ public class BookingService implements IBookingService {
     @Autowired
     private BookingRepository bookingRepository;
     @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
     private IRoomService roomService;
     @Autowired
     private RoomRepository roomRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private RoomHoldRegistry roomHoldRegistry;
+    @Autowired
+    private StreamingListWriter streamingListWriter;
+    @Autowired
+    private CacheInvalidationLog cacheInvalidationLog;
+    @Autowired
+    private ConfirmationCodeFilter confirmationCodeFilter;
+    @Autowired
+    private ConfirmationCodeCodec confirmationCodeCodec;
+    @Autowired
+    private BookingIdAllocator bookingIdAllocator;
+
+    //can be turned off once no booking with an old random code is left
+    @Value("${app.booking.confirmation-code.legacy-lookup:true}")
+    private boolean legacyCodeLookup;
+    @Autowired
+    private NotificationOutbox notificationOutbox;
+    @Autowired
+    private OccupancyRollupService occupancyRollupService;
 
 
     @Override
-    public Response saveBooking(Long roomId, Long userId, Booking bookingRequest) {
+    @Transactional
+    public Response saveBooking(Long roomId, Long userId, Booking bookingRequest, String holdId) {
 
         Response response = new Response();
 
@@ -40,29 +89,58 @@ public class BookingService implements IBookingService {
             if (bookingRequest.getCheckOutDate().isBefore(bookingRequest.getCheckInDate())) {
                 throw new IllegalArgumentException("Check in date must come after check out date");
             }
+            if (holdId != null) {
+                RoomHoldRegistry.RoomHold hold = roomHoldRegistry.find(holdId).orElseThrow(() -> new OurException("Hold Not Found or Expired"));
+                if (!hold.roomId().equals(roomId) || !hold.userId().equals(userId)
+                        || !hold.checkInDate().equals(bookingRequest.getCheckInDate())
+                        || !hold.checkOutDate().equals(bookingRequest.getCheckOutDate())) {
+                    throw new OurException("Hold does not match this booking");
+                }
+            }
             Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
             User user = userRepository.findById(userId).orElseThrow(() -> new OurException("User Not Found"));
 
             List<Booking> existingBookings = room.getBookings();
 
-            if (!roomIsAvailable(bookingRequest, existingBookings)) {
+            if (!roomIsAvailable(bookingRequest, existingBookings)
+                    || roomHoldRegistry.isHeld(roomId, bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate(), holdId)) {
                 throw new OurException("Room not Available for selected date range");
             }
 
             bookingRequest.setRoom(room);
             bookingRequest.setUser(user);
-            String bookingConfirmationCode = Utils.generateRandomConfirmationCode(10);
+            bookingRequest.setNightlyPrice(room.getRoomPrice());
+            bookingRequest.setId(bookingIdAllocator.next());
+            //derived from the id, so it is unique without a check and decodes back to the id on lookup
+            String bookingConfirmationCode = confirmationCodeCodec.encode(bookingRequest.getId());
             bookingRequest.setBookingConfirmationCode(bookingConfirmationCode);
-            bookingRepository.save(bookingRequest);
+            bookingRepository.insert(bookingRequest);
+            confirmationCodeFilter.add(bookingConfirmationCode);
+            cacheInvalidationLog.bookingCreated(bookingRequest.getId());
+            notificationOutbox.bookingConfirmed(bookingRequest);
+            occupancyRollupService.recordBooking(bookingRequest);
+            if (holdId != null) {
+                eventPublisher.publishEvent(new HoldConvertedEvent(holdId));
+            }
+            RoomAvailabilityChangedEvent availabilityChange = new RoomAvailabilityChangedEvent(room.getId(), room.getRoomType(),
+                    bookingRequest.getCheckInDate(), bookingRequest.getCheckOutDate());
+            cacheInvalidationLog.availabilityChanged(availabilityChange);
+            eventPublisher.publishEvent(availabilityChange);
+            eventPublisher.publishEvent(new AuditEvent(AuditEntry.Action.BOOKING_CREATED, bookingRequest.getId(),
+                    "code=" + bookingConfirmationCode + " room=" + room.getId() + " user=" + user.getId()
+                            + " stay=" + bookingRequest.getCheckInDate() + ".." + bookingRequest.getCheckOutDate()));
             response.setStatusCode(200);
             response.setMessage("successful");
             response.setBookingConfirmationCode(bookingConfirmationCode);
 
         } catch (OurException e) {
+            //the failure is answered with a Response instead of an exception, so the rollback has to be requested
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(404);
             response.setMessage(e.getMessage());
 
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(500);
             response.setMessage("Error Saving a booking: " + e.getMessage());
 
@@ -72,40 +150,93 @@ public class BookingService implements IBookingService {
 
 
     @Override
-    public Response findBookingByConfirmationCode(String confirmationCode) {
+    @Transactional
+    public Response holdRoom(Long roomId, Long userId, HoldRequest holdRequest) {
 
         Response response = new Response();
 
         try {
-            Booking booking = bookingRepository.findByBookingConfirmationCode(confirmationCode).orElseThrow(() -> new OurException("Booking Not Found"));
-            BookingDTO bookingDTO = Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, true);
+            if (holdRequest.getCheckOutDate().isBefore(holdRequest.getCheckInDate())) {
+                throw new IllegalArgumentException("Check in date must come after check out date");
+            }
+            Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
+            userRepository.findById(userId).orElseThrow(() -> new OurException("User Not Found"));
+
+            Booking requestedStay = new Booking();
+            requestedStay.setCheckInDate(holdRequest.getCheckInDate());
+            requestedStay.setCheckOutDate(holdRequest.getCheckOutDate());
+            if (!roomIsAvailable(requestedStay, room.getBookings())) {
+                throw new OurException("Room not Available for selected date range");
+            }
+
+            RoomHoldRegistry.RoomHold hold = roomHoldRegistry.create(roomId, room.getRoomType(), userId,
+                            holdRequest.getCheckInDate(), holdRequest.getCheckOutDate())
+                    .orElseThrow(() -> new OurException("Room not Available for selected date range"));
             response.setStatusCode(200);
             response.setMessage("successful");
-            response.setBooking(bookingDTO);
+            response.setHoldId(hold.holdId());
+            response.setExpirationTime(Instant.ofEpochMilli(hold.expiresAt()).toString());
 
         } catch (OurException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(404);
             response.setMessage(e.getMessage());
 
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(500);
-            response.setMessage("Error Finding a booking: " + e.getMessage());
+            response.setMessage("Error Holding a room: " + e.getMessage());
+
+        }
+        return response;
+    }
+
+    @Override
+    public Response releaseHold(String holdId) {
+
+        Response response = new Response();
 
+        if (roomHoldRegistry.release(holdId)) {
+            response.setStatusCode(200);
+            response.setMessage("successful");
+        } else {
+            response.setStatusCode(404);
+            response.setMessage("Hold Not Found or Expired");
         }
         return response;
     }
 
     @Override
-    public Response getAllBookings() {
+    @Transactional(readOnly = true)
+    public Response findBookingByConfirmationCode(String code) {
 
         Response response = new Response();
 
         try {
-            List<Booking> bookingList = bookingRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
-            List<BookingDTO> bookingDTOList = Utils.mapBookingListEntityToBookingListDTO(bookingList);
+            //codes are issued in upper case; lookups by the column used to match any case through the MySQL collation
+            String confirmationCode = code.trim().toUpperCase(Locale.ROOT);
+            //answered without a query for codes that were never issued
+            if (!confirmationCodeFilter.mightExist(confirmationCode)) {
+                throw new OurException("Booking Not Found");
+            }
+            //stays checked out long ago live in bookings_history, under the same id
+            Booking booking = confirmationCodeCodec.decode(confirmationCode)
+                    .flatMap(bookingId -> bookingRepository.findById(bookingId)
+                            .or(() -> bookingHistoryRepository.findByIdWithUserAndRoom(bookingId).map(BookingHistory::toBooking)))
+                    .filter(found -> confirmationCode.equals(found.getBookingConfirmationCode()))
+                    //random codes issued before codes were derived from ids
+                    .or(() -> legacyCodeLookup ? bookingRepository.findByBookingConfirmationCode(confirmationCode) : Optional.empty())
+                    .or(() -> legacyCodeLookup
+                            ? bookingHistoryRepository.findByBookingConfirmationCode(confirmationCode).map(BookingHistory::toBooking)
+                            : Optional.empty())
+                    .orElseThrow(() -> {
+                        confirmationCodeFilter.recordFalsePositive();
+                        return new OurException("Booking Not Found");
+                    });
+            BookingDTO bookingDTO = Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, true);
             response.setStatusCode(200);
             response.setMessage("successful");
-            response.setBookingList(bookingDTOList);
+            response.setBooking(bookingDTO);
 
         } catch (OurException e) {
             response.setStatusCode(404);
@@ -113,28 +244,45 @@ public class BookingService implements IBookingService {
 
         } catch (Exception e) {
             response.setStatusCode(500);
-            response.setMessage("Error Getting all bookings: " + e.getMessage());
+            response.setMessage("Error Finding a booking: " + e.getMessage());
 
         }
         return response;
     }
 
     @Override
+    public void writeAllBookings(OutputStream out, MediaType format, FieldSet fields) {
+        streamingListWriter.write(out, format, "bookingList", bookingRepository::streamAllNewestFirst,
+                booking -> Utils.mapBookingEntityToBookingDTO(booking, fields));
+    }
+
+    @Override
+    @Transactional
     public Response cancelBooking(Long bookingId) {
 
         Response response = new Response();
 
         try {
-            bookingRepository.findById(bookingId).orElseThrow(() -> new OurException("Booking Does Not Exist"));
+            Booking booking = bookingRepository.findById(bookingId).orElseThrow(() -> new OurException("Booking Does Not Exist"));
+            RoomAvailabilityChangedEvent availabilityChange = new RoomAvailabilityChangedEvent(booking.getRoom().getId(),
+                    booking.getRoom().getRoomType(), booking.getCheckInDate(), booking.getCheckOutDate());
+            occupancyRollupService.recordCancellation(booking);
             bookingRepository.deleteById(bookingId);
+            cacheInvalidationLog.availabilityChanged(availabilityChange);
+            eventPublisher.publishEvent(availabilityChange);
+            eventPublisher.publishEvent(new AuditEvent(AuditEntry.Action.BOOKING_CANCELLED, bookingId,
+                    "code=" + booking.getBookingConfirmationCode() + " room=" + booking.getRoom().getId()
+                            + " stay=" + booking.getCheckInDate() + ".." + booking.getCheckOutDate()));
             response.setStatusCode(200);
             response.setMessage("successful");
 
         } catch (OurException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(404);
             response.setMessage(e.getMessage());
 
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(500);
             response.setMessage("Error Cancelling a booking: " + e.getMessage());
 
@@ -0,0 +1,133 @@
+package com.maneth.zikhron.service.impl;
+
+import com.maneth.zikhron.dto.OccupancyReportDTO;
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.entity.DailyOccupancyRollup;
+import com.maneth.zikhron.exception.OurException;
+import com.maneth.zikhron.repo.DailyOccupancyRollupRepository;
+import com.maneth.zikhron.service.OccupancyRollupService;
+import com.maneth.zikhron.service.RoomSearchIndex;
+import com.maneth.zikhron.service.interfac.IReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+@Service
+public class ReportService implements IReportService {
+
+    private static final long MAX_RANGE_DAYS = 3660;
+
+    @Autowired
+    private DailyOccupancyRollupRepository rollupRepository;
+    @Autowired
+    private RoomSearchIndex roomSearchIndex;
+    @Autowired
+    private OccupancyRollupService occupancyRollupService;
+
+    //Occupancy % = nights sold / (rooms of the type * nights in the period), ADR = revenue / nights sold.
+    //Room counts come from the current catalog.
+    @Override
+    @Transactional(readOnly = true)
+    public Response getOccupancyReport(LocalDate from, LocalDate to, String granularity, String roomType) {
+        Response response = new Response();
+
+        try {
+            if (to.isBefore(from)) {
+                throw new OurException("'to' date must not be before 'from' date");
+            }
+            if (ChronoUnit.DAYS.between(from, to) > MAX_RANGE_DAYS) {
+                throw new OurException("Report range must not exceed " + MAX_RANGE_DAYS + " days");
+            }
+            boolean monthly = "MONTH".equalsIgnoreCase(granularity);
+            String typeFilter = roomType == null || roomType.isBlank() ? null : RoomSearchIndex.normalizeType(roomType);
+
+            Map<String, Long> roomsPerType = roomSearchIndex.countRoomsByType();
+            Map<String, String> displayTypes = new TreeMap<>();
+            roomSearchIndex.getRoomTypes().forEach(type -> displayTypes.put(RoomSearchIndex.normalizeType(type), type));
+
+            Map<String, Long> nightsPerPeriod = new LinkedHashMap<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                nightsPerPeriod.merge(period(day, monthly), 1L, Long::sum);
+            }
+
+            Map<String, Map<String, long[]>> soldByPeriod = new HashMap<>();
+            Map<String, Map<String, BigDecimal>> revenueByPeriod = new HashMap<>();
+            for (DailyOccupancyRollup rollup : rollupRepository.findByStayDateBetweenOrderByStayDate(from, to)) {
+                String type = RoomSearchIndex.normalizeType(rollup.getRoomType());
+                if (typeFilter != null && !typeFilter.equals(type)) {
+                    continue;
+                }
+                displayTypes.putIfAbsent(type, rollup.getRoomType());
+                String period = period(rollup.getStayDate(), monthly);
+                soldByPeriod.computeIfAbsent(period, k -> new HashMap<>()).computeIfAbsent(type, k -> new long[1])[0] += rollup.getRoomNightsSold();
+                revenueByPeriod.computeIfAbsent(period, k -> new HashMap<>()).merge(type, rollup.getRevenue(), BigDecimal::add);
+            }
+
+            List<OccupancyReportDTO> report = new ArrayList<>();
+            for (Map.Entry<String, Long> periodNights : nightsPerPeriod.entrySet()) {
+                String period = periodNights.getKey();
+                for (Map.Entry<String, String> type : displayTypes.entrySet()) {
+                    if (typeFilter != null && !typeFilter.equals(type.getKey())) {
+                        continue;
+                    }
+                    long sold = soldByPeriod.getOrDefault(period, Map.of()).getOrDefault(type.getKey(), new long[1])[0];
+                    BigDecimal revenue = revenueByPeriod.getOrDefault(period, Map.of()).getOrDefault(type.getKey(), BigDecimal.ZERO);
+                    long available = roomsPerType.getOrDefault(type.getKey(), 0L) * periodNights.getValue();
+
+                    OccupancyReportDTO row = new OccupancyReportDTO();
+                    row.setPeriod(period);
+                    row.setRoomType(type.getValue());
+                    row.setRoomNightsSold(sold);
+                    row.setRoomNightsAvailable(available);
+                    row.setRevenue(revenue);
+                    if (available > 0) {
+                        row.setOccupancyRate(BigDecimal.valueOf(sold * 100).divide(BigDecimal.valueOf(available), 2, RoundingMode.HALF_UP));
+                    }
+                    if (sold > 0) {
+                        row.setAverageDailyRate(revenue.divide(BigDecimal.valueOf(sold), 2, RoundingMode.HALF_UP));
+                    }
+                    report.add(row);
+                }
+            }
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setOccupancyReport(report);
+
+        } catch (OurException e) {
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error building occupancy report " + e.getMessage());
+        }
+        return response;
+    }
+
+    @Override
+    public Response rebuildOccupancyRollups() {
+        Response response = new Response();
+
+        try {
+            occupancyRollupService.rebuild();
+            response.setStatusCode(200);
+            response.setMessage("successful");
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error rebuilding occupancy rollups " + e.getMessage());
+        }
+        return response;
+    }
+
+    private static String period(LocalDate day, boolean monthly) {
+        return monthly ? YearMonth.from(day).toString() : day.toString();
+    }
+}
@@ -1,22 +1,47 @@
 package com.maneth.zikhron.service.impl;
 
+import com.maneth.zikhron.config.ReplicaRoutingContext;
 import com.maneth.zikhron.dto.Response;
 import com.maneth.zikhron.dto.RoomDTO;
+import com.maneth.zikhron.entity.AuditEntry;
 import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.event.AuditEvent;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
+import com.maneth.zikhron.event.RoomChangedEvent;
 import com.maneth.zikhron.exception.OurException;
+import com.maneth.zikhron.repo.BookingHistoryRepository;
 import com.maneth.zikhron.repo.BookingRepository;
 import com.maneth.zikhron.repo.RoomRepository;
+import com.maneth.zikhron.service.AvailabilityCache;
+import com.maneth.zikhron.service.AvailabilityQuery;
+import com.maneth.zikhron.service.AvailabilitySearchCoalescer;
 import com.maneth.zikhron.service.AwsS3Service;
+import com.maneth.zikhron.service.CacheInvalidationLog;
+import com.maneth.zikhron.service.OccupancyRollupService;
+import com.maneth.zikhron.service.RoomHoldRegistry;
+import com.maneth.zikhron.service.RoomSearchIndex;
+import com.maneth.zikhron.service.StreamingListWriter;
 import com.maneth.zikhron.service.interfac.IRoomService;
+import com.maneth.zikhron.utils.FieldSet;
 import com.maneth.zikhron.utils.Utils;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class RoomService implements IRoomService {
@@ -27,20 +52,59 @@ public class RoomService implements IRoomService {
     @Autowired
     private BookingRepository bookingRepository;
     @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
+    private OccupancyRollupService occupancyRollupService;
+    @Autowired
     private AwsS3Service awsS3Service;
+    @Autowired
+    private RoomSearchIndex roomSearchIndex;
+    @Autowired
+    private AvailabilitySearchCoalescer availabilitySearchCoalescer;
+    @Autowired
+    private AvailabilityCache availabilityCache;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private RoomHoldRegistry roomHoldRegistry;
+    @Autowired
+    private StreamingListWriter streamingListWriter;
+    @Autowired
+    private CacheInvalidationLog cacheInvalidationLog;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
 
+    //not @Transactional: the photo goes to S3 before the transaction starts, so no database connection waits on the upload
     @Override
     public Response addNewRoom(MultipartFile photo, String roomType, BigDecimal roomPrice, String description) {
         Response response = new Response();
 
         try {
             String imageUrl = awsS3Service.saveImageToS3(photo);
-            Room room = new Room();
-            room.setRoomPhotoUrl(imageUrl);
-            room.setRoomType(roomType);
-            room.setRoomPrice(roomPrice);
-            room.setRoomDescription(description);
-            Room savedRoom = roomRepository.save(room);
+            Room savedRoom = transactionTemplate.execute(status -> {
+                Room room = new Room();
+                room.setRoomPhotoUrl(imageUrl);
+                room.setRoomType(roomType.trim());
+                room.setRoomPrice(roomPrice);
+                room.setRoomDescription(description);
+                Room saved = roomRepository.save(room);
+                eventPublisher.publishEvent(RoomChangedEvent.saved(saved));
+                cacheInvalidationLog.roomChanged(saved.getId(), saved.getRoomType());
+                eventPublisher.publishEvent(RoomAvailabilityChangedEvent.wholeRoom(saved.getId(), saved.getRoomType()));
+                eventPublisher.publishEvent(new AuditEvent(AuditEntry.Action.ROOM_ADDED, saved.getId(),
+                        "type=" + saved.getRoomType() + " price=" + saved.getRoomPrice()));
+                return saved;
+            });
             RoomDTO roomDTO = Utils.mapRoomEntityToRoomDTO(savedRoom);
             response.setStatusCode(200);
             response.setMessage("successful");
@@ -54,64 +118,86 @@ public class RoomService implements IRoomService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<String> getAllRoomTypes() {
         return roomRepository.findDistinctRoomTypes();
     }
 
     @Override
-    public Response getAllRooms() {
-        Response response = new Response();
-
-        try {
-            List<Room> roomList = roomRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
-            List<RoomDTO> roomDTOList = Utils.mapRoomListEntityToRoomListDTO(roomList);
-            response.setStatusCode(200);
-            response.setMessage("successful");
-            response.setRoomList(roomDTOList);
-
-        } catch (Exception e) {
-            response.setStatusCode(500);
-            response.setMessage("Error saving a room " + e.getMessage());
+    public void writeAllRooms(OutputStream out, MediaType format, FieldSet fields) {
+        if (fields.isAll()) {
+            streamingListWriter.write(out, format, "roomList", roomRepository::streamAllByOrderByIdDesc, Utils::mapRoomEntityToRoomDTO);
+            return;
         }
-        return response;
+        //only the requested columns are selected, so a type/price listing never reads descriptions or photo urls
+        List<String> columns = fields.select(Utils.ROOM_FIELDS);
+        streamingListWriter.write(out, format, "roomList", () -> roomRepository.streamColumnsOrderByIdDesc(columns), Utils::mapRoomTupleToRoomDTO);
     }
 
     @Override
+    @Transactional
     public Response deleteRoom(Long roomId) {
         Response response = new Response();
 
         try {
-            roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
-            roomRepository.deleteById(roomId);
+            Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
+            //bookings go first in set-based deletes, so the cascade on Room.bookings finds an empty collection
+            //instead of loading and deleting every booking one row at a time
+            occupancyRollupService.recordCancellations(bookingRepository.findStaysForRoom(roomId));
+            //the rollups count archived stays as well, so those leave with the history rows
+            occupancyRollupService.recordCancellations(bookingHistoryRepository.findStaysForRoom(roomId));
+            bookingRepository.deleteAllForRoom(roomId);
+            bookingHistoryRepository.deleteAllForRoom(roomId);
+            roomRepository.delete(room);
+            eventPublisher.publishEvent(RoomChangedEvent.deleted(roomId));
+            cacheInvalidationLog.roomChanged(roomId, room.getRoomType());
+            eventPublisher.publishEvent(RoomAvailabilityChangedEvent.wholeRoom(roomId, room.getRoomType()));
+            eventPublisher.publishEvent(new AuditEvent(AuditEntry.Action.ROOM_DELETED, roomId, "type=" + room.getRoomType()));
             response.setStatusCode(200);
             response.setMessage("successful");
 
         } catch (OurException e) {
+            //the failure is answered with a Response instead of an exception, so the rollback has to be requested
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(404);
             response.setMessage(e.getMessage());
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(500);
             response.setMessage("Error saving a room " + e.getMessage());
         }
         return response;
     }
 
+    //not @Transactional, for the same reason as addNewRoom
     @Override
     public Response updateRoom(Long roomId, String description, String roomType, BigDecimal roomPrice, MultipartFile photo) {
         Response response = new Response();
 
         try {
-            String imageUrl = null;
-            if (photo != null && !photo.isEmpty()) {
-                imageUrl = awsS3Service.saveImageToS3(photo);
-            }
-            Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
-            if (roomType != null) room.setRoomType(roomType);
-            if (roomPrice != null) room.setRoomPrice(roomPrice);
-            if (description != null) room.setRoomDescription(description);
-            if (imageUrl != null) room.setRoomPhotoUrl(imageUrl);
+            String imageUrl = photo != null && !photo.isEmpty() ? awsS3Service.saveImageToS3(photo) : null;
+            Room updatedRoom = transactionTemplate.execute(status -> {
+                Room room = roomRepository.findById(roomId).orElseThrow(() -> new OurException("Room Not Found"));
+                String previousRoomType = room.getRoomType();
+                BigDecimal previousRoomPrice = room.getRoomPrice();
+                if (roomType != null) room.setRoomType(roomType.trim());
+                if (roomPrice != null) room.setRoomPrice(roomPrice);
+                if (description != null) room.setRoomDescription(description);
+                if (imageUrl != null) room.setRoomPhotoUrl(imageUrl);
 
-            Room updatedRoom = roomRepository.save(room);
+                Room saved = roomRepository.save(room);
+                eventPublisher.publishEvent(RoomChangedEvent.saved(saved));
+                cacheInvalidationLog.roomChanged(roomId, previousRoomType);
+                if (!previousRoomType.equals(saved.getRoomType())) {
+                    cacheInvalidationLog.roomChanged(roomId, saved.getRoomType());
+                }
+                eventPublisher.publishEvent(RoomAvailabilityChangedEvent.wholeRoom(roomId, previousRoomType));
+                eventPublisher.publishEvent(RoomAvailabilityChangedEvent.wholeRoom(roomId, saved.getRoomType()));
+                eventPublisher.publishEvent(new AuditEvent(AuditEntry.Action.ROOM_UPDATED, roomId,
+                        "type=" + previousRoomType + "->" + saved.getRoomType() + " price=" + previousRoomPrice + "->" + saved.getRoomPrice()
+                                + (description != null ? " description" : "") + (imageUrl != null ? " photo" : "")));
+                return saved;
+            });
             RoomDTO roomDTO = Utils.mapRoomEntityToRoomDTO(updatedRoom);
 
             response.setStatusCode(200);
@@ -129,6 +215,7 @@ public class RoomService implements IRoomService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Response getRoomById(Long roomId) {
         Response response = new Response();
 
@@ -149,13 +236,35 @@ public class RoomService implements IRoomService {
         return response;
     }
 
+    //not @Transactional: callers that find the answer in the cache or wait on an identical search never need a
+    //transaction; only the search that actually runs the query opens one
     @Override
     public Response getAvailableRoomsByDataAndType(LocalDate checkInDate, LocalDate checkOutDate, String roomType) {
+        AvailabilityQuery query = AvailabilityQuery.of(checkInDate, checkOutDate, roomType);
+        Response cached = availabilityCache.get(query);
+        if (cached != null) {
+            return cached;
+        }
+        return availabilitySearchCoalescer.search(query, () -> {
+            long stamp = availabilityCache.stamp(query);
+            //the stamp only catches invalidations during the search, not bookings a lagging replica has yet to see,
+            //so the search that fills the cache reads the primary
+            Response response = ReplicaRoutingContext.onPrimary(
+                    () -> readOnlyTransactionTemplate.execute(status -> findAvailableRooms(query)));
+            if (response.getStatusCode() == 200) {
+                availabilityCache.put(query, response, stamp);
+            }
+            return response;
+        });
+    }
+
+    private Response findAvailableRooms(AvailabilityQuery query) {
         Response response = new Response();
 
         try {
-            List<Room> availableRooms = roomRepository.findAvailableRoomsByDatesAndTypes(checkInDate, checkOutDate, roomType);
-            List<RoomDTO> roomDTOList = Utils.mapRoomListEntityToRoomListDTO(availableRooms);
+            Set<Long> bookedRoomIds = new HashSet<>(roomRepository.findBookedRoomIdsBetween(query.checkInDate(), query.checkOutDate()));
+            bookedRoomIds.addAll(roomHoldRegistry.heldRoomIds(query.checkInDate(), query.checkOutDate()));
+            List<RoomDTO> roomDTOList = roomSearchIndex.search(query.roomType(), null, null, null, null, bookedRoomIds);
             response.setStatusCode(200);
             response.setMessage("successful");
             response.setRoomList(roomDTOList);
@@ -168,6 +277,31 @@ public class RoomService implements IRoomService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Response searchRooms(String roomType, BigDecimal minPrice, BigDecimal maxPrice, String keyword, Sort.Direction priceSort,
+                                LocalDate checkInDate, LocalDate checkOutDate) {
+        Response response = new Response();
+
+        try {
+            Set<Long> bookedRoomIds = null;
+            if (checkInDate != null && checkOutDate != null) {
+                bookedRoomIds = new HashSet<>(roomRepository.findBookedRoomIdsBetween(checkInDate, checkOutDate));
+                bookedRoomIds.addAll(roomHoldRegistry.heldRoomIds(checkInDate, checkOutDate));
+            }
+            List<RoomDTO> roomDTOList = roomSearchIndex.search(roomType, minPrice, maxPrice, keyword, priceSort, bookedRoomIds);
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setRoomList(roomDTOList);
+
+        } catch (Exception e) {
+            response.setStatusCode(500);
+            response.setMessage("Error searching rooms " + e.getMessage());
+        }
+        return response;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Response getAllAvailableRooms() {
         Response response = new Response();
 
@@ -1,34 +1,94 @@
 package com.maneth.zikhron.service.impl;
 
+import com.maneth.zikhron.dto.BookingDTO;
 import com.maneth.zikhron.dto.LoginRequest;
 import com.maneth.zikhron.dto.Response;
 import com.maneth.zikhron.dto.UserDTO;
+import com.maneth.zikhron.entity.AuditEntry;
+import com.maneth.zikhron.entity.Booking;
 import com.maneth.zikhron.entity.User;
+import com.maneth.zikhron.event.AuditEvent;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
 import com.maneth.zikhron.exception.OurException;
+import com.maneth.zikhron.repo.BookingHistoryRepository;
+import com.maneth.zikhron.repo.BookingRepository;
 import com.maneth.zikhron.repo.UserRepository;
+import com.maneth.zikhron.security.AuthUser;
+import com.maneth.zikhron.service.CacheInvalidationLog;
+import com.maneth.zikhron.service.OccupancyRollupService;
+import com.maneth.zikhron.service.StreamingListWriter;
+import com.maneth.zikhron.service.TokenRevocationList;
 import com.maneth.zikhron.service.interfac.IUserService;
+import com.maneth.zikhron.utils.FieldSet;
 import com.maneth.zikhron.utils.JWTUtils;
+import com.maneth.zikhron.utils.OffsetPageRequest;
 import com.maneth.zikhron.utils.Utils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class UserService implements IUserService {
+
+    //bounds for open-ended date filters, inside the range of a MySQL DATE column
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1000, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private UserRepository userRepository;
     @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
+    private OccupancyRollupService occupancyRollupService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
     private PasswordEncoder passwordEncoder;
     @Autowired
     private JWTUtils jwtUtils;
     @Autowired
     private AuthenticationManager authenticationManager;
+    @Autowired
+    private StreamingListWriter streamingListWriter;
+    @Autowired
+    private CacheInvalidationLog cacheInvalidationLog;
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
 
+    //not @Transactional: the password is hashed before the transaction starts, so no database connection waits on BCrypt
     @Override
     public Response register(User user) {
         Response response = new Response();
@@ -40,7 +100,12 @@ public class UserService implements IUserService {
                 throw new OurException(user.getEmail() + "Already Exists");
             }
             user.setPassword(passwordEncoder.encode(user.getPassword()));
-            User savedUser = userRepository.save(user);
+            User savedUser = transactionTemplate.execute(status -> {
+                User saved = userRepository.save(user);
+                //other nodes may have cached the email as unknown
+                cacheInvalidationLog.userChanged(saved.getId());
+                return saved;
+            });
             UserDTO userDTO = Utils.mapUserEntityToUserDTO(savedUser);
             response.setStatusCode(200);
             response.setUser(userDTO);
@@ -55,19 +120,23 @@ public class UserService implements IUserService {
         return response;
     }
 
+    //not @Transactional: the user lookup runs in its own short transaction and the connection is back in the pool
+    //before BCrypt checks the password
     @Override
     public Response login(LoginRequest loginRequest) {
 
         Response response = new Response();
 
         try {
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
-            var user = userRepository.findByEmail(loginRequest.getEmail()).orElseThrow(() -> new OurException("user Not found"));
+            //the principal already holds what the token and response need, no second lookup of the user
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+            AuthUser user = (AuthUser) authentication.getPrincipal();
 
             var token = jwtUtils.generateToken(user);
             response.setStatusCode(200);
             response.setToken(token);
-            response.setRole(user.getRole());
+            response.setRole(user.role());
             response.setExpirationTime("7 Days");
             response.setMessage("successful");
 
@@ -84,31 +153,63 @@ public class UserService implements IUserService {
     }
 
     @Override
-    public Response getAllUsers() {
+    @Transactional
+    public Response logout(String token) {
 
         Response response = new Response();
+
         try {
-            List<User> userList = userRepository.findAll();
-            List<UserDTO> userDTOList = Utils.mapUserListEntityToUserListDTO(userList);
+            Claims claims = jwtUtils.extractAllClaims(token);
+            if (claims.getId() == null) {
+                //issued before tokens carried an id; only deleting the user revokes those
+                throw new OurException("Token cannot be revoked");
+            }
+            tokenRevocationList.revokeToken(claims.getId(), claims.getSubject(), claims.getExpiration());
             response.setStatusCode(200);
             response.setMessage("successful");
-            response.setUserList(userDTOList);
+
+        } catch (OurException e) {
+            //the failure is answered with a Response instead of an exception, so the rollback has to be requested
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
+
+        } catch (JwtException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            response.setStatusCode(400);
+            response.setMessage("Invalid token");
 
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+
             response.setStatusCode(500);
-            response.setMessage("Error getting all users " + e.getMessage());
+            response.setMessage("Error Occurred During User Logout " + e.getMessage());
         }
         return response;
     }
 
     @Override
+    public void writeAllUsers(OutputStream out, MediaType format, FieldSet fields) {
+        streamingListWriter.write(out, format, "userList", userRepository::streamAllBy, user -> Utils.mapUserEntityToUserDTO(user, fields));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Response getUserBookingHistory(String userId) {
 
         Response response = new Response();
 
         try {
             User user = userRepository.findById(Long.valueOf(userId)).orElseThrow(() -> new OurException("User Not Found"));
-            UserDTO userDTO = Utils.mapUserEntityToUserDTOPlusUserBookingsAndRoom(user);
+            UserDTO userDTO = Utils.mapUserEntityToUserDTO(user);
+            List<BookingDTO> bookings = new ArrayList<>();
+            bookingRepository.findAllForUserWithRoom(user.getId())
+                    .forEach(booking -> bookings.add(Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, false)));
+            bookingHistoryRepository.findByUserIdWithRoom(user.getId())
+                    .forEach(history -> bookings.add(Utils.mapBookingEntityToBookingDTOPlusBookedRooms(history.toBooking(), false)));
+            if (!bookings.isEmpty()) {
+                userDTO.setBookings(bookings);
+            }
             response.setStatusCode(200);
             response.setMessage("successful");
             response.setUser(userDTO);
@@ -125,22 +226,156 @@ public class UserService implements IUserService {
         return response;
     }
 
+    //Upcoming stays check in today or later, soonest first.
+    @Override
+    @Transactional(readOnly = true)
+    public Response getUpcomingBookings(String userId, LocalDate from, LocalDate to, int page, int size) {
+
+        Response response = new Response();
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        try {
+            User user = userRepository.findById(Long.valueOf(userId)).orElseThrow(() -> new OurException("User Not Found"));
+            LocalDate today = LocalDate.now();
+            LocalDate lower = from == null || from.isBefore(today) ? today : from;
+            LocalDate upper = to == null ? LATEST_DATE : to;
+
+            Page<Booking> bookings = bookingRepository.findForUserCheckingInBetween(user.getId(), lower, upper,
+                    PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "checkInDate", "id")));
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setBookingList(bookings.map(booking -> Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, false)).getContent());
+            setPage(response, page, size, bookings.getTotalElements());
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+
+            response.setStatusCode(500);
+            response.setMessage("Error getting upcoming bookings " + e.getMessage());
+        }
+        return response;
+    }
+
+    //Past stays checked in before today, most recent first. Live bookings come first, archived ones continue the
+    //same listing once the live rows run out.
     @Override
+    @Transactional(readOnly = true)
+    public Response getPastBookings(String userId, LocalDate from, LocalDate to, int page, int size) {
+
+        Response response = new Response();
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        try {
+            User user = userRepository.findById(Long.valueOf(userId)).orElseThrow(() -> new OurException("User Not Found"));
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            LocalDate lower = from == null ? EARLIEST_DATE : from;
+            LocalDate upper = to == null || to.isAfter(yesterday) ? yesterday : to;
+            Sort newestFirst = Sort.by(Sort.Direction.DESC, "checkInDate", "id");
+            long offset = (long) page * size;
+
+            Page<Booking> live = bookingRepository.findForUserCheckingInBetween(user.getId(), lower, upper,
+                    PageRequest.of(page, size, newestFirst));
+            List<BookingDTO> bookings = new ArrayList<>();
+            live.forEach(booking -> bookings.add(Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, false)));
+
+            long archivedTotal = bookingHistoryRepository.countForUserCheckingInBetween(user.getId(), lower, upper);
+            if (bookings.size() < size && archivedTotal > 0) {
+                long archivedOffset = Math.max(0, offset - live.getTotalElements());
+                bookingHistoryRepository.findForUserCheckingInBetween(user.getId(), lower, upper,
+                                new OffsetPageRequest(archivedOffset, size - bookings.size(), newestFirst))
+                        .forEach(history -> bookings.add(Utils.mapBookingEntityToBookingDTOPlusBookedRooms(history.toBooking(), false)));
+            }
+
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setBookingList(bookings);
+            setPage(response, page, size, live.getTotalElements() + archivedTotal);
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+
+            response.setStatusCode(500);
+            response.setMessage("Error getting past bookings " + e.getMessage());
+        }
+        return response;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Response getNextUpcomingStay(String userId) {
+
+        Response response = new Response();
+
+        try {
+            List<Booking> next = bookingRepository.findNextForUser(Long.valueOf(userId), LocalDate.now(), PageRequest.of(0, 1));
+            Booking booking = next.stream().findFirst().orElseThrow(() -> new OurException("No Upcoming Stay"));
+            response.setStatusCode(200);
+            response.setMessage("successful");
+            response.setBooking(Utils.mapBookingEntityToBookingDTOPlusBookedRooms(booking, false));
+
+        } catch (OurException e) {
+            response.setStatusCode(404);
+            response.setMessage(e.getMessage());
+
+        } catch (Exception e) {
+
+            response.setStatusCode(500);
+            response.setMessage("Error getting next stay " + e.getMessage());
+        }
+        return response;
+    }
+
+    private static void setPage(Response response, int page, int size, long totalElements) {
+        response.setPageNumber(page);
+        response.setPageSize(size);
+        response.setTotalElements(totalElements);
+        response.setTotalPages((int) ((totalElements + size - 1) / size));
+    }
+
+    @Override
+    @Transactional
     public Response deleteUser(String userId) {
 
         Response response = new Response();
 
         try {
-            userRepository.findById(Long.valueOf(userId)).orElseThrow(() -> new OurException("User Not Found"));
-            userRepository.deleteById(Long.valueOf(userId));
+            User user = userRepository.findById(Long.valueOf(userId)).orElseThrow(() -> new OurException("User Not Found"));
+            //bookings go first in set-based deletes, so the cascade on User.bookings finds an empty collection
+            //instead of loading and deleting every booking one row at a time
+            List<Object[]> stays = bookingRepository.findStaysForUser(user.getId());
+            occupancyRollupService.recordCancellations(stays);
+            //the rollups count archived stays as well, so those leave with the history rows
+            occupancyRollupService.recordCancellations(bookingHistoryRepository.findStaysForUser(user.getId()));
+            bookingRepository.deleteAllForUser(user.getId());
+            bookingHistoryRepository.deleteAllForUser(user.getId());
+            userRepository.delete(user);
+            List<RoomAvailabilityChangedEvent> availabilityChanges = stays.stream()
+                    .map(stay -> new RoomAvailabilityChangedEvent((Long) stay[4], (String) stay[2], (LocalDate) stay[0], (LocalDate) stay[1]))
+                    .toList();
+            tokenRevocationList.revokeAllFor(user.getEmail());
+            cacheInvalidationLog.userChanged(user.getId());
+            cacheInvalidationLog.availabilityChanged(availabilityChanges);
+            availabilityChanges.forEach(eventPublisher::publishEvent);
+            eventPublisher.publishEvent(new AuditEvent(AuditEntry.Action.USER_DELETED, user.getId(),
+                    "email=" + user.getEmail() + " bookings=" + stays.size()));
             response.setStatusCode(200);
             response.setMessage("successful");
 
         } catch (OurException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.setStatusCode(404);
             response.setMessage(e.getMessage());
 
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
 
             response.setStatusCode(500);
             response.setMessage("Error getting all users " + e.getMessage());
@@ -149,6 +384,7 @@ public class UserService implements IUserService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Response getUserById(String userId) {
 
         Response response = new Response();
@@ -173,6 +409,7 @@ public class UserService implements IUserService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Response getMyInfo(String email) {
 
         Response response = new Response();
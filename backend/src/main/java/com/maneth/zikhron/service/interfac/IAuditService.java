@@ -0,0 +1,10 @@
+package com.maneth.zikhron.service.interfac;
+
+import com.maneth.zikhron.dto.Response;
+
+import java.time.LocalDateTime;
+
+public interface IAuditService {
+
+    Response getAuditLog(LocalDateTime from, LocalDateTime to, String action, String actor, Long entityId, int page, int size);
+}
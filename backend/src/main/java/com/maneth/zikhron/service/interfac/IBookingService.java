@@ -1,15 +1,25 @@
 package com.maneth.zikhron.service.interfac;
 
+import com.maneth.zikhron.dto.HoldRequest;
 import com.maneth.zikhron.dto.Response;
 import com.maneth.zikhron.entity.Booking;
 
+import com.maneth.zikhron.utils.FieldSet;
+import org.springframework.http.MediaType;
+
+import java.io.OutputStream;
+
 public interface IBookingService {
 
-    Response saveBooking(Long roomId, Long userId, Booking bookingRequest);
+    Response saveBooking(Long roomId, Long userId, Booking bookingRequest, String holdId);
+
+    Response holdRoom(Long roomId, Long userId, HoldRequest holdRequest);
+
+    Response releaseHold(String holdId);
 
     Response findBookingByConfirmationCode(String confirmationCode);
 
-    Response getAllBookings();
+    void writeAllBookings(OutputStream out, MediaType format, FieldSet fields);
 
     Response cancelBooking(Long bookingId);
 
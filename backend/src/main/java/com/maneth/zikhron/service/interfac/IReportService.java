@@ -0,0 +1,12 @@
+package com.maneth.zikhron.service.interfac;
+
+import com.maneth.zikhron.dto.Response;
+
+import java.time.LocalDate;
+
+public interface IReportService {
+
+    Response getOccupancyReport(LocalDate from, LocalDate to, String granularity, String roomType);
+
+    Response rebuildOccupancyRollups();
+}
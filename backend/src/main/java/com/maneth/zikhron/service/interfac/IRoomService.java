@@ -1,8 +1,12 @@
 package com.maneth.zikhron.service.interfac;
 
 import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.utils.FieldSet;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
@@ -12,7 +16,7 @@ public interface IRoomService {
 
     List<String> getAllRoomTypes();
 
-    Response getAllRooms();
+    void writeAllRooms(OutputStream out, MediaType format, FieldSet fields);
 
     Response deleteRoom(Long roomId);
 
@@ -22,5 +26,8 @@ public interface IRoomService {
 
     Response getAvailableRoomsByDataAndType(LocalDate checkInDate, LocalDate checkOutDate, String roomType);
 
+    Response searchRooms(String roomType, BigDecimal minPrice, BigDecimal maxPrice, String keyword, Sort.Direction priceSort,
+                         LocalDate checkInDate, LocalDate checkOutDate);
+
     Response getAllAvailableRooms();
 }
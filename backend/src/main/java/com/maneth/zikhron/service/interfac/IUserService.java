@@ -4,15 +4,29 @@ import com.maneth.zikhron.dto.LoginRequest;
 import com.maneth.zikhron.dto.Response;
 import com.maneth.zikhron.entity.User;
 
+import com.maneth.zikhron.utils.FieldSet;
+import org.springframework.http.MediaType;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
 public interface IUserService {
     Response register(User user);
 
     Response login(LoginRequest loginRequest);
 
-    Response getAllUsers();
+    Response logout(String token);
+
+    void writeAllUsers(OutputStream out, MediaType format, FieldSet fields);
 
     Response getUserBookingHistory(String userId);
 
+    Response getUpcomingBookings(String userId, LocalDate from, LocalDate to, int page, int size);
+
+    Response getPastBookings(String userId, LocalDate from, LocalDate to, int page, int size);
+
+    Response getNextUpcomingStay(String userId);
+
     Response deleteUser(String userId);
 
     Response getUserById(String userId);
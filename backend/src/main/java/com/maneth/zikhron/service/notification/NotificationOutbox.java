@@ -0,0 +1,54 @@
+package com.maneth.zikhron.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maneth.zikhron.entity.Booking;
+import com.maneth.zikhron.entity.OutboxEvent;
+import com.maneth.zikhron.exception.OurException;
+import com.maneth.zikhron.repo.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class NotificationOutbox {
+
+    public static final String BOOKING_CONFIRMED = "BOOKING_CONFIRMED";
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    //Must join the caller's transaction: the event is only visible to the dispatcher if the booking commits.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingConfirmed(Booking booking) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("bookingId", booking.getId());
+        payload.put("bookingConfirmationCode", booking.getBookingConfirmationCode());
+        payload.put("roomId", booking.getRoom().getId());
+        payload.put("roomType", booking.getRoom().getRoomType());
+        payload.put("checkInDate", booking.getCheckInDate().toString());
+        payload.put("checkOutDate", booking.getCheckOutDate().toString());
+        payload.put("totalNumOfGuest", booking.getTotalNumOfGuest());
+        payload.put("guestName", booking.getUser().getName());
+        payload.put("guestEmail", booking.getUser().getEmail());
+
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(BOOKING_CONFIRMED);
+        event.setAggregateId(booking.getId());
+        event.setStatus(OutboxEvent.Status.PENDING);
+        event.setCreatedAt(LocalDateTime.now());
+        event.setNextAttemptAt(event.getCreatedAt());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (Exception e) {
+            throw new OurException("Unable to serialize notification: " + e.getMessage());
+        }
+        outboxEventRepository.save(event);
+    }
+}
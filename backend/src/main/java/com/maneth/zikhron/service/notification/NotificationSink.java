@@ -0,0 +1,12 @@
+package com.maneth.zikhron.service.notification;
+
+import com.maneth.zikhron.entity.OutboxEvent;
+
+//A downstream system that booking notifications are delivered to. Delivery is at-least-once: only the sinks that
+//failed are retried, but a node dying mid-delivery repeats the event, so sinks should use the event id to ignore duplicates.
+public interface NotificationSink {
+
+    String name();
+
+    void deliver(OutboxEvent event) throws Exception;
+}
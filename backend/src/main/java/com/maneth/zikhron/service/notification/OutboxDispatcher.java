@@ -0,0 +1,163 @@
+package com.maneth.zikhron.service.notification;
+
+import com.maneth.zikhron.entity.OutboxEvent;
+import com.maneth.zikhron.repo.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+//Drains the outbox in batches. A batch is claimed in a short transaction (locked with SKIP LOCKED and leased by moving
+//nextAttemptAt forward), delivered with no transaction or connection held, and its outcome written in a second short
+//transaction, so a slow sink never pins a connection or row locks. Each sink that took the event is recorded and skipped
+//on retry. Failed events are retried with exponential backoff and parked as FAILED after maxAttempts. SENT events are
+//deleted after retentionDays.
+@Slf4j
+@Component
+@Lazy(false)
+public class OutboxDispatcher {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private List<NotificationSink> sinks;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.initial-backoff-seconds:5}")
+    private long initialBackoffSeconds;
+
+    @Value("${app.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    //how long a claimed batch stays away from the other dispatchers; longer than delivering a batch can take
+    @Value("${app.outbox.claim-seconds:300}")
+    private long claimSeconds;
+
+    @Value("${app.outbox.retention-days:7}")
+    private long retentionDays;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter sent;
+    private Counter retried;
+    private Counter failed;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        sent = Counter.builder("zikhron.outbox.sent").register(meterRegistry);
+        retried = Counter.builder("zikhron.outbox.retried").register(meterRegistry);
+        failed = Counter.builder("zikhron.outbox.failed").description("Events given up after max attempts").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:1000}")
+    public void dispatch() {
+        //keep draining while batches come back full, then wait for the next poll
+        while (true) {
+            List<OutboxEvent> batch = transactionTemplate.execute(status -> claimBatch());
+            if (batch.isEmpty()) {
+                return;
+            }
+            batch.forEach(this::deliver);
+            transactionTemplate.executeWithoutResult(status -> saveOutcome(batch));
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.purge-ms:3600000}")
+    public void purge() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} sent outbox events", deleted);
+        }
+    }
+
+    private List<OutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> batch = outboxEventRepository.lockDueBatch(now, PageRequest.of(0, batchSize));
+        batch.forEach(event -> event.setNextAttemptAt(now.plusSeconds(claimSeconds)));
+        return batch;
+    }
+
+    private void deliver(OutboxEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> delivered = deliveredSinks(event);
+        String error = null;
+        for (NotificationSink sink : sinks) {
+            if (delivered.contains(sink.name())) {
+                continue;
+            }
+            try {
+                sink.deliver(event);
+                delivered.add(sink.name());
+            } catch (Exception e) {
+                if (error == null) {
+                    error = sink.name() + ": " + e.getClass().getSimpleName() + ": " + e.getMessage();
+                }
+            }
+        }
+        event.setDeliveredSinks(String.join(",", delivered));
+        if (error != null) {
+            recordFailure(event, error, now);
+            return;
+        }
+        event.setStatus(OutboxEvent.Status.SENT);
+        event.setSentAt(now);
+        event.setLastError(null);
+        sent.increment();
+    }
+
+    private void saveOutcome(List<OutboxEvent> batch) {
+        //loaded in one query first, so the merges below find the rows in the persistence context instead of selecting each
+        outboxEventRepository.findAllById(batch.stream().map(OutboxEvent::getId).toList());
+        outboxEventRepository.saveAll(batch);
+    }
+
+    private static Set<String> deliveredSinks(OutboxEvent event) {
+        Set<String> delivered = new LinkedHashSet<>();
+        if (event.getDeliveredSinks() != null && !event.getDeliveredSinks().isEmpty()) {
+            delivered.addAll(Arrays.asList(event.getDeliveredSinks().split(",")));
+        }
+        return delivered;
+    }
+
+    private void recordFailure(OutboxEvent event, String error, LocalDateTime now) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(OutboxEvent.Status.FAILED);
+            failed.increment();
+            log.warn("Giving up on outbox event {} after {} attempts: {}", event.getId(), event.getAttempts(), error);
+            return;
+        }
+        long backoff = Math.min(maxBackoffSeconds, initialBackoffSeconds << Math.min(event.getAttempts() - 1, 30));
+        event.setNextAttemptAt(now.plusSeconds(backoff));
+        retried.increment();
+    }
+}
@@ -0,0 +1,53 @@
+package com.maneth.zikhron.service.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maneth.zikhron.entity.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+//Sends the guest a confirmation email. Without spring.mail.host configured there is no JavaMailSender
+//and the sink runs as a local stub that only logs the message it would have sent.
+@Slf4j
+@Component
+public class SmtpNotificationSink implements NotificationSink {
+
+    @Autowired
+    private ObjectProvider<JavaMailSender> mailSender;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.notifications.mail.from:no-reply@zikhron.com}")
+    private String from;
+
+    @Override
+    public String name() {
+        return "smtp";
+    }
+
+    @Override
+    public void deliver(OutboxEvent event) throws Exception {
+        JsonNode payload = objectMapper.readTree(event.getPayload());
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(payload.path("guestEmail").asText());
+        message.setSubject("Your booking " + payload.path("bookingConfirmationCode").asText() + " is confirmed");
+        message.setText("Hi " + payload.path("guestName").asText() + ",\n\n"
+                + "Your " + payload.path("roomType").asText() + " room is booked from "
+                + payload.path("checkInDate").asText() + " to " + payload.path("checkOutDate").asText() + ".\n"
+                + "Confirmation code: " + payload.path("bookingConfirmationCode").asText() + "\n");
+
+        JavaMailSender sender = mailSender.getIfAvailable();
+        if (sender == null) {
+            log.info("[smtp stub] event {} -> {}: {}", event.getId(), message.getTo(), message.getSubject());
+            return;
+        }
+        sender.send(message);
+    }
+}
@@ -0,0 +1,53 @@
+package com.maneth.zikhron.service.notification;
+
+import com.maneth.zikhron.entity.OutboxEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+//Pushes booking events to the channel manager. Without app.notifications.webhook.url it runs as a local stub that only logs.
+@Slf4j
+@Component
+public class WebhookNotificationSink implements NotificationSink {
+
+    @Value("${app.notifications.webhook.url:}")
+    private String webhookUrl;
+
+    @Value("${app.notifications.webhook.timeout-ms:5000}")
+    private int timeoutMillis;
+
+    private RestClient restClient;
+
+    @PostConstruct
+    public void init() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMillis);
+        requestFactory.setReadTimeout(timeoutMillis);
+        restClient = RestClient.builder().requestFactory(requestFactory).build();
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public void deliver(OutboxEvent event) {
+        if (webhookUrl.isBlank()) {
+            log.info("[webhook stub] event {} {}: {}", event.getId(), event.getEventType(), event.getPayload());
+            return;
+        }
+        restClient.post()
+                .uri(webhookUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Event-Id", String.valueOf(event.getId()))
+                .header("X-Event-Type", event.getEventType())
+                .body(event.getPayload())
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
@@ -0,0 +1,108 @@
+package com.maneth.zikhron.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+//AIMD concurrency limit driven by observed latency, in the style of TCP congestion avoidance. While the limiter is at
+//least half busy, each fast completion adds 1/limit, so the limit grows by about one per round of calls. A call that
+//fails, or takes more than latencyTolerance times the no-load baseline, cuts the limit by backoffRatio; calls admitted
+//before the last cut are ignored so one overload burst is only punished once. The baseline is the lowest latency seen,
+//drifting slowly upwards so it can follow a genuinely slower database. Only successful calls set the baseline or grow
+//the limit; ignored ones just free their slot.
+//Calls over the limit are refused immediately instead of queueing for a connection they would time out waiting for.
+public class AdaptiveConcurrencyLimiter {
+
+    //IGNORED: the call says nothing about load, e.g. a request rejected before doing any real work
+    public enum Outcome {
+        SUCCEEDED, FAILED, IGNORED
+    }
+
+    private static final double BASELINE_DRIFT = 0.001;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private double baselineNanos = Double.NaN;
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio, System::nanoTime);
+    }
+
+    //the clock is swapped for simulated time in tests
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance, double backoffRatio,
+                               LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    //a true result must be paired with release()
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos, Outcome outcome) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        if (outcome == Outcome.IGNORED) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        synchronized (this) {
+            boolean failed = outcome == Outcome.FAILED;
+            if (!failed) {
+                if (Double.isNaN(baselineNanos) || latencyNanos < baselineNanos) {
+                    baselineNanos = latencyNanos;
+                } else {
+                    baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DRIFT;
+                }
+            }
+
+            if (failed || latencyNanos > baselineNanos * latencyTolerance) {
+                if (now - latencyNanos > lastDecreaseNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightAtCompletion * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,118 @@
+package com.maneth.zikhron.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.Optional;
+
+//Booking confirmation codes derived from the booking id: the id goes through a keyed Feistel permutation of the 36^10
+//possible codes and is written as 10 base36 characters, the same shape as the old random codes. Consecutive ids give unrelated looking
+//codes, and without the key a guessed code is almost never a real one. decode() reverses it, so a lookup by code is a lookup
+//by primary key. Changing the key changes the codes of new bookings only; stored codes still resolve by the code column.
+//The key is what keeps codes unguessable, so it has no default: set app.booking.confirmation-code.key (or the
+//APP_BOOKING_CONFIRMATIONCODE_KEY environment variable) to a random secret of at least 32 characters, the same on every
+//node, and keep it out of the repository. Startup fails without it. See CONFIGURATION.md.
+@Service
+public class ConfirmationCodeCodec {
+
+    public static final int CODE_LENGTH = 10;
+
+    private static final int HALF_BITS = 26;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    //36^10
+    private static final long CODE_SPACE = 3_656_158_440_062_976L;
+    private static final int ROUNDS = 8;
+    private static final int MIN_KEY_LENGTH = 32;
+
+    private final ThreadLocal<Mac> roundFunction;
+
+    public ConfirmationCodeCodec(@Value("${app.booking.confirmation-code.key:}") String key) {
+        if (key.isBlank() || key.length() < MIN_KEY_LENGTH) {
+            throw new IllegalStateException("app.booking.confirmation-code.key must be set to a secret of at least "
+                    + MIN_KEY_LENGTH + " characters; see CONFIGURATION.md");
+        }
+        SecretKeySpec secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.roundFunction = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(secretKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    public String encode(long bookingId) {
+        if (bookingId < 0 || bookingId >= CODE_SPACE) {
+            throw new IllegalArgumentException("Booking id out of range for a confirmation code: " + bookingId);
+        }
+        //cycle walking: the Feistel network permutes 52-bit values, reapplying it until the result is below 36^10
+        //keeps the permutation inside the code space (about 1.25 passes on average)
+        long value = bookingId;
+        do {
+            value = permute(value);
+        } while (value >= CODE_SPACE);
+        String code = Long.toString(value, 36).toUpperCase(Locale.ROOT);
+        return "0".repeat(CODE_LENGTH - code.length()) + code;
+    }
+
+    //empty for anything encode() cannot have produced, e.g. the random codes issued before
+    public Optional<Long> decode(String code) {
+        if (code == null || code.length() != CODE_LENGTH) {
+            return Optional.empty();
+        }
+        long value = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            char c = code.charAt(i);
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'A' && c <= 'Z' ? c - 'A' + 10 : -1;
+            if (digit < 0) {
+                return Optional.empty();
+            }
+            value = value * 36 + digit;
+        }
+        do {
+            value = unpermute(value);
+        } while (value >= CODE_SPACE);
+        return Optional.of(value);
+    }
+
+    private long permute(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int round = 0; round < ROUNDS; round++) {
+            long next = left ^ scramble(round, right);
+            left = right;
+            right = next;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private long unpermute(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            long previous = right ^ scramble(round, left);
+            right = left;
+            left = previous;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private long scramble(int round, long half) {
+        Mac mac = roundFunction.get();
+        mac.update((byte) round);
+        mac.update((byte) (half >>> 24));
+        mac.update((byte) (half >>> 16));
+        mac.update((byte) (half >>> 8));
+        mac.update((byte) half);
+        byte[] digest = mac.doFinal();
+        long bits = ((digest[0] & 0xFFL) << 24) | ((digest[1] & 0xFFL) << 16) | ((digest[2] & 0xFFL) << 8) | (digest[3] & 0xFFL);
+        return bits & HALF_MASK;
+    }
+}
@@ -0,0 +1,43 @@
+package com.maneth.zikhron.utils;
+
+import java.util.*;
+
+//A parsed ?fields= parameter (sparse fieldset): the DTO properties the client wants, comma separated.
+//A missing or blank parameter means every field. id is always included so clients can still key their rows.
+public final class FieldSet {
+
+    public static final FieldSet ALL = new FieldSet(null);
+
+    private final Set<String> names;
+
+    private FieldSet(Set<String> names) {
+        this.names = names;
+    }
+
+    public static FieldSet parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        names.add("id");
+        for (String field : fields.split(",")) {
+            if (!field.isBlank()) {
+                names.add(field.trim());
+            }
+        }
+        return new FieldSet(names);
+    }
+
+    public boolean isAll() {
+        return names == null;
+    }
+
+    public boolean includes(String field) {
+        return names == null || names.contains(field);
+    }
+
+    //the requested fields among the allowed ones, in the allowed order; unknown names are ignored
+    public List<String> select(List<String> allowed) {
+        return allowed.stream().filter(this::includes).toList();
+    }
+}
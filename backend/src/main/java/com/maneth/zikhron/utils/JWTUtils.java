@@ -10,13 +10,14 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JWTUtils {
 
 
-    private static final long EXPIRATION_TIME = 1000 * 60 * 24 * 7; //for 7 days
+    public static final long EXPIRATION_TIME = 1000 * 60 * 24 * 7; //for 7 days
 
     private final SecretKey Key;
 
@@ -29,6 +30,7 @@ public class JWTUtils {
 
     public String generateToken(UserDetails userDetails) {
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
@@ -40,8 +42,13 @@ public class JWTUtils {
         return extractClaims(token, Claims::getSubject);
     }
 
+    //verifies the signature and expiry once; callers read subject, jti and dates from the result
+    public Claims extractAllClaims(String token) {
+        return Jwts.parser().verifyWith(Key).build().parseSignedClaims(token).getPayload();
+    }
+
     private <T> T extractClaims(String token, Function<Claims, T> claimsTFunction) {
-        return claimsTFunction.apply(Jwts.parser().verifyWith(Key).build().parseSignedClaims(token).getPayload());
+        return claimsTFunction.apply(extractAllClaims(token));
     }
 
     public boolean isValidToken(String token, UserDetails userDetails) {
@@ -0,0 +1,64 @@
+package com.maneth.zikhron.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//Bounded lock-free queue for many producer threads and a single consumer thread. Producers claim a sequence with one
+//CAS and publish into its slot; the consumer takes slots in sequence order and frees them. offer never blocks, it
+//returns false when the buffer is full. A slot that is claimed but not yet published stops the drain until it is.
+public class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    //written by the consumer only
+    private volatile long consumerIndex;
+
+    public MpscRingBuffer(int requestedCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public boolean offer(E element) {
+        long sequence;
+        do {
+            sequence = producerIndex.get();
+            if (sequence - consumerIndex >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(sequence, sequence + 1));
+        slots.setRelease((int) sequence & mask, element);
+        return true;
+    }
+
+    //consumer thread only
+    public int drainTo(Collection<? super E> sink, int max) {
+        long head = consumerIndex;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) head & mask;
+            E element = slots.getAcquire(slot);
+            if (element == null) {
+                break;
+            }
+            slots.setPlain(slot, null);
+            sink.add(element);
+            head++;
+            drained++;
+        }
+        //the volatile write also publishes the cleared slots to producers
+        consumerIndex = head;
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,31 @@
+package com.maneth.zikhron.utils;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+//A PageRequest starting at an arbitrary row instead of a page boundary, used when one page is stitched together
+//from two tables (live bookings followed by archived ones).
+public class OffsetPageRequest extends PageRequest {
+
+    private final long offset;
+
+    public OffsetPageRequest(long offset, int pageSize, Sort sort) {
+        super(0, pageSize, sort);
+        this.offset = offset;
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof OffsetPageRequest other && super.equals(other) && offset == other.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Long.hashCode(offset);
+    }
+}
@@ -0,0 +1,82 @@
+package com.maneth.zikhron.utils;
+
+import com.maneth.zikhron.exception.OurException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//Collapses concurrent calls with the same key into one execution of the loader; everyone who arrives while it runs gets its result.
+//The entry is removed as soon as the loader finishes, so a failure only reaches the callers that were already waiting on it,
+//and a waiter that gives up after maxWaitMillis runs the loader itself instead of hanging on a stuck leader.
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitMillis;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder waitTimeouts = new LongAdder();
+
+    public SingleFlight(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+
+        if (existing == null) {
+            executions.increment();
+            try {
+                V value = loader.get();
+                mine.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return existing.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            waitTimeouts.increment();
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new OurException("Shared execution failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OurException("Interrupted while waiting for a shared execution");
+        }
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getWaitTimeouts() {
+        return waitTimeouts.sum();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    //share of calls that were served by someone else's execution
+    public double getCoalescingRatio() {
+        long shared = coalesced.sum();
+        long total = shared + executions.sum();
+        return total == 0 ? 0.0 : (double) shared / total;
+    }
+}
@@ -1,33 +1,27 @@
 package com.maneth.zikhron.utils;
 
 
+import com.maneth.zikhron.dto.AuditEntryDTO;
 import com.maneth.zikhron.dto.BookingDTO;
+import com.maneth.zikhron.dto.Response;
 import com.maneth.zikhron.dto.RoomDTO;
 import com.maneth.zikhron.dto.UserDTO;
+import com.maneth.zikhron.entity.AuditEntry;
 import com.maneth.zikhron.entity.Booking;
 import com.maneth.zikhron.entity.Room;
 import com.maneth.zikhron.entity.User;
 
-import java.security.SecureRandom;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class Utils {
 
-    private static final String ALPHANUMERIC_STRING = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    private static final SecureRandom secureRandom = new SecureRandom();
-
-
-    public static String generateRandomConfirmationCode(int length) {
-        StringBuilder stringBuilder = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            int randomIndex = secureRandom.nextInt(ALPHANUMERIC_STRING.length());
-            char randomChar = ALPHANUMERIC_STRING.charAt(randomIndex);
-            stringBuilder.append(randomChar);
-        }
-        return stringBuilder.toString();
-    }
-
+    //Room attributes a sparse fieldset may select for room lists
+    public static final List<String> ROOM_FIELDS = List.of("id", "roomType", "roomPrice", "roomPhotoUrl", "roomDescription");
 
     public static UserDTO mapUserEntityToUserDTO(User user) {
         UserDTO userDTO = new UserDTO();
@@ -64,6 +58,18 @@ public class Utils {
         return bookingDTO;
     }
 
+    public static AuditEntryDTO mapAuditEntryToAuditEntryDTO(AuditEntry entry) {
+        AuditEntryDTO auditEntryDTO = new AuditEntryDTO();
+
+        auditEntryDTO.setId(entry.getId());
+        auditEntryDTO.setAction(entry.getAction().name());
+        auditEntryDTO.setActor(entry.getActor());
+        auditEntryDTO.setEntityId(entry.getEntityId());
+        auditEntryDTO.setDetail(entry.getDetail());
+        auditEntryDTO.setOccurredAt(entry.getOccurredAt());
+        return auditEntryDTO;
+    }
+
     public static RoomDTO mapRoomEntityToRoomDTOPlusBookings(Room room) {
         RoomDTO roomDTO = new RoomDTO();
 
@@ -134,5 +140,78 @@ public class Utils {
         return bookingList.stream().map(Utils::mapBookingEntityToBookingDTO).collect(Collectors.toList());
     }
 
+    /* Sparse fieldsets (?fields=): only the requested properties are set, the rest stay null and are not serialized */
 
-}
\ No newline at end of file
+    public static UserDTO mapUserEntityToUserDTO(User user, FieldSet fields) {
+        UserDTO userDTO = new UserDTO();
+
+        userDTO.setId(user.getId());
+        if (fields.includes("name")) userDTO.setName(user.getName());
+        if (fields.includes("email")) userDTO.setEmail(user.getEmail());
+        if (fields.includes("phoneNumber")) userDTO.setPhoneNumber(user.getPhoneNumber());
+        if (fields.includes("role")) userDTO.setRole(user.getRole());
+        if (!fields.includes("bookings")) userDTO.setBookings(null);
+        return userDTO;
+    }
+
+    public static BookingDTO mapBookingEntityToBookingDTO(Booking booking, FieldSet fields) {
+        BookingDTO bookingDTO = new BookingDTO();
+
+        bookingDTO.setId(booking.getId());
+        if (fields.includes("checkInDate")) bookingDTO.setCheckInDate(booking.getCheckInDate());
+        if (fields.includes("checkOutDate")) bookingDTO.setCheckOutDate(booking.getCheckOutDate());
+        if (fields.includes("numOfAdults")) bookingDTO.setNumOfAdults(booking.getNumOfAdults());
+        if (fields.includes("numOfChildren")) bookingDTO.setNumOfChildren(booking.getNumOfChildren());
+        if (fields.includes("totalNumOfGuest")) bookingDTO.setTotalNumOfGuest(booking.getTotalNumOfGuest());
+        if (fields.includes("bookingConfirmationCode")) bookingDTO.setBookingConfirmationCode(booking.getBookingConfirmationCode());
+        return bookingDTO;
+    }
+
+    public static RoomDTO selectRoomFields(RoomDTO room, FieldSet fields) {
+        RoomDTO roomDTO = new RoomDTO();
+
+        roomDTO.setId(room.getId());
+        if (fields.includes("roomType")) roomDTO.setRoomType(room.getRoomType());
+        if (fields.includes("roomPrice")) roomDTO.setRoomPrice(room.getRoomPrice());
+        if (fields.includes("roomPhotoUrl")) roomDTO.setRoomPhotoUrl(room.getRoomPhotoUrl());
+        if (fields.includes("roomDescription")) roomDTO.setRoomDescription(room.getRoomDescription());
+        if (fields.includes("bookings")) roomDTO.setBookings(room.getBookings());
+        return roomDTO;
+    }
+
+    //returns a trimmed copy, responses may be shared through the availability cache
+    public static Response selectRoomFields(Response response, FieldSet fields) {
+        if (fields.isAll() || (response.getRoom() == null && response.getRoomList() == null)) {
+            return response;
+        }
+        Response trimmed = new Response();
+        trimmed.setStatusCode(response.getStatusCode());
+        trimmed.setMessage(response.getMessage());
+        if (response.getRoom() != null) {
+            trimmed.setRoom(selectRoomFields(response.getRoom(), fields));
+        }
+        if (response.getRoomList() != null) {
+            trimmed.setRoomList(response.getRoomList().stream().map(room -> selectRoomFields(room, fields)).collect(Collectors.toList()));
+        }
+        return trimmed;
+    }
+
+    //rows from RoomRepository.streamColumnsOrderByIdDesc, aliased by attribute name
+    public static RoomDTO mapRoomTupleToRoomDTO(Tuple tuple) {
+        RoomDTO roomDTO = new RoomDTO();
+
+        for (TupleElement<?> element : tuple.getElements()) {
+            Object value = tuple.get(element);
+            switch (element.getAlias()) {
+                case "id" -> roomDTO.setId((Long) value);
+                case "roomType" -> roomDTO.setRoomType((String) value);
+                case "roomPrice" -> roomDTO.setRoomPrice((BigDecimal) value);
+                case "roomPhotoUrl" -> roomDTO.setRoomPhotoUrl((String) value);
+                case "roomDescription" -> roomDTO.setRoomDescription((String) value);
+                default -> {
+                }
+            }
+        }
+        return roomDTO;
+    }
+}
@@ -0,0 +1,68 @@
+package com.maneth.zikhron.benchmark;
+
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+//Shared measuring for the *Benchmark classes (run with mvn -Pbenchmark test, see BENCHMARKS.md).
+public final class BenchmarkSupport {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private BenchmarkSupport() {
+    }
+
+    //what a piece of work on the current thread costs in allocation, collections and wall time
+    public record Cost(long allocatedBytes, long collections, long collectionMillis, long nanos) {
+    }
+
+    public static Cost measure(Runnable work) {
+        long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        long collections = collections();
+        long collectionMillis = collectionMillis();
+        long started = System.nanoTime();
+        work.run();
+        return new Cost(THREADS.getCurrentThreadAllocatedBytes() - allocated, collections() - collections,
+                collectionMillis() - collectionMillis, System.nanoTime() - started);
+    }
+
+    //heap still in use after a full collection
+    public static long liveHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static String mb(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / 1048576.0);
+    }
+
+    public static void report(String format, Object... args) {
+        System.out.printf(Locale.ROOT, format + "%n", args);
+    }
+
+    private static long collections() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long collectionMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    //stands in for the network: counts the bytes and drops them
+    public static class CountingOutputStream extends OutputStream {
+
+        public long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
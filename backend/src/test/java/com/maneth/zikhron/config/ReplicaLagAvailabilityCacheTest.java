@@ -0,0 +1,171 @@
+package com.maneth.zikhron.config;
+
+import com.maneth.zikhron.dto.RoomDTO;
+import com.maneth.zikhron.entity.Booking;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.entity.User;
+import com.maneth.zikhron.repo.BookingRepository;
+import com.maneth.zikhron.repo.RoomRepository;
+import com.maneth.zikhron.repo.UserRepository;
+import com.maneth.zikhron.service.*;
+import com.maneth.zikhron.service.impl.RoomService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+//An availability search right after a booking the replica has not received yet. The replica counts as healthy, as it
+//would while lagging less than max-lag-seconds, but the result is kept by AvailabilityCache for minutes, so the search
+//that fills it must not see the room as free.
+@DataJpaTest(properties = {"spring.sql.init.mode=never", "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({RoomService.class, AvailabilityCache.class, AvailabilitySearchCoalescer.class, ReplicaLagAvailabilityCacheTest.StaleReplica.class})
+class ReplicaLagAvailabilityCacheTest {
+
+    private static final DataSource PRIMARY = new DriverManagerDataSource("jdbc:h2:mem:lag-primary;DB_CLOSE_DELAY=-1", "sa", "");
+    private static final DataSource REPLICA = new DriverManagerDataSource("jdbc:h2:mem:lag-replica;DB_CLOSE_DELAY=-1", "sa", "");
+
+    @TestConfiguration
+    static class StaleReplica {
+
+        //always in rotation; what it holds is whatever was last copied over from the primary
+        @Bean
+        ReplicaRoutingDataSource replicaRoutingDataSource() {
+            ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(PRIMARY, List.of(REPLICA), 5, 20) {
+                @Override
+                boolean isFreshEnough(DataSource replica) {
+                    return true;
+                }
+            };
+            routing.afterPropertiesSet();
+            return routing;
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private OccupancyRollupService occupancyRollupService;
+    @MockitoBean
+    private CacheInvalidationLog cacheInvalidationLog;
+    @MockitoBean
+    private AwsS3Service awsS3Service;
+    @MockitoBean
+    private StreamingListWriter streamingListWriter;
+    @MockitoBean
+    private RoomHoldRegistry roomHoldRegistry;
+    @MockitoBean
+    private RoomSearchIndex roomSearchIndex;
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingContext.clearRequest();
+    }
+
+    //the replica as of now: schema and rows
+    private static void copyPrimaryToReplica() {
+        JdbcTemplate replica = new JdbcTemplate(REPLICA);
+        replica.execute("DROP ALL OBJECTS");
+        new JdbcTemplate(PRIMARY).queryForList("SCRIPT", String.class).forEach(replica::execute);
+    }
+
+    private long bookingsSeenByReadOnlyTransactions() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> bookingRepository.count());
+    }
+
+    @Test
+    void searchThatFillsTheCacheDoesNotReadALaggingReplica() {
+        Room room = new Room();
+        room.setRoomType("Suite");
+        room.setRoomPrice(BigDecimal.valueOf(200));
+        Long roomId = roomRepository.save(room).getId();
+        User user = new User();
+        user.setEmail("guest@example.com");
+        user.setName("Guest");
+        user.setPhoneNumber("1");
+        user.setPassword("x");
+        user.setRole("USER");
+        userRepository.save(user);
+        copyPrimaryToReplica();
+
+        LocalDate checkIn = LocalDate.now().plusDays(10);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Booking booking = new Booking();
+            booking.setId(1L);
+            booking.setCheckInDate(checkIn);
+            booking.setCheckOutDate(checkIn.plusDays(2));
+            booking.setNumOfAdults(1);
+            booking.setNumOfChildren(1);
+            booking.setUser(user);
+            booking.setRoom(roomRepository.getReferenceById(roomId));
+            bookingRepository.insert(booking);
+        });
+        //a new request: the booking's own request would stay on the primary
+        ReplicaRoutingContext.clearRequest();
+        assertThat(new JdbcTemplate(PRIMARY).queryForObject("SELECT COUNT(*) FROM bookings", Long.class)).isEqualTo(1);
+        assertThat(bookingsSeenByReadOnlyTransactions()).isZero();
+
+        RoomDTO suite = new RoomDTO();
+        suite.setId(roomId);
+        given(roomSearchIndex.search(any(), any(), any(), any(), any(), any())).willAnswer(invocation -> {
+            Set<Long> bookedRoomIds = invocation.getArgument(5);
+            return bookedRoomIds.contains(roomId) ? List.of() : List.of(suite);
+        });
+
+        assertThat(roomService.getAvailableRoomsByDataAndType(checkIn, checkIn.plusDays(2), "Suite").getRoomList()).isEmpty();
+        //the second search is answered from the cache
+        assertThat(roomService.getAvailableRoomsByDataAndType(checkIn, checkIn.plusDays(2), "Suite").getRoomList()).isEmpty();
+        verify(roomSearchIndex).search(any(), any(), any(), any(), any(), any());
+        //and the request's other reads still go to the replica
+        assertThat(bookingsSeenByReadOnlyTransactions()).isZero();
+    }
+}
@@ -0,0 +1,66 @@
+package com.maneth.zikhron.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(ReplicaRoutingConfig.class)
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:h2:mem:config-primary",
+                    "spring.datasource.username=sa",
+                    "app.datasource.replica.urls=jdbc:h2:mem:config-replica",
+                    "spring.datasource.hikari.maximum-pool-size=7",
+                    "spring.datasource.hikari.connection-timeout=1234");
+
+    @Test
+    void applicationDataSourceIsTheLazyProxyOverTheRouting() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(LazyConnectionDataSourceProxy.class);
+            assertThat(((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource()).isSameAs(context.getBean(ReplicaRoutingDataSource.class));
+        });
+    }
+
+    @Test
+    void replicaPoolsAreClosedWithTheContext() {
+        contextRunner.run(context -> {
+            HikariDataSource replica = (HikariDataSource) context.getBean(ReplicaRoutingDataSource.class).getResolvedDataSources().get(0);
+            context.close();
+            assertThat(replica.isClosed()).isTrue();
+        });
+    }
+
+    @Test
+    void primaryPoolUsesTheHikariSettings() {
+        contextRunner.run(context -> {
+            HikariDataSource primary = context.getBean("primaryDataSource", HikariDataSource.class);
+            assertThat(primary.getMaximumPoolSize()).isEqualTo(7);
+            assertThat(primary.getConnectionTimeout()).isEqualTo(1234);
+            assertThat(primary.getPoolName()).isEqualTo("primary");
+        });
+    }
+
+    @Test
+    void replicaPoolsUseTheHikariSettingsAndTheirOverrides() {
+        contextRunner.withPropertyValues("app.datasource.replica.hikari.maximum-pool-size=3").run(context -> {
+            ReplicaRoutingDataSource routing = context.getBean(ReplicaRoutingDataSource.class);
+            HikariDataSource replica = (HikariDataSource) routing.getResolvedDataSources().get(0);
+            assertThat(replica.getJdbcUrl()).isEqualTo("jdbc:h2:mem:config-replica");
+            assertThat(replica.getMaximumPoolSize()).isEqualTo(3);
+            assertThat(replica.getConnectionTimeout()).isEqualTo(1234);
+            assertThat(replica.isReadOnly()).isTrue();
+            assertThat(replica.getPoolName()).isEqualTo("replica-0");
+        });
+    }
+}
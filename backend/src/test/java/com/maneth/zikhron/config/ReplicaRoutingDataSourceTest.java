@@ -0,0 +1,153 @@
+package com.maneth.zikhron.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Routing against two embedded databases that each know their own name. The replica's health is a flag here,
+//since H2 has no SHOW REPLICA STATUS.
+class ReplicaRoutingDataSourceTest {
+
+    private final AtomicBoolean replicaFresh = new AtomicBoolean(true);
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        routing = newRouting(database("primary"), database("replica"));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        awaitReplicaHealthy(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingContext.clearRequest();
+        routing.destroy();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertThat(inReadOnlyTransaction()).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionsGoToThePrimary() {
+        assertThat(inReadWriteTransaction()).isEqualTo("primary");
+    }
+
+    @Test
+    void workOutsideATransactionGoesToThePrimary() {
+        assertThat(currentDatabase()).isEqualTo("primary");
+    }
+
+    @Test
+    void readsAfterAWriteStayOnThePrimaryUntilTheRequestEnds() {
+        readWrite.executeWithoutResult(status -> currentDatabase());
+        assertThat(inReadOnlyTransaction()).isEqualTo("primary");
+
+        ReplicaRoutingContext.clearRequest();
+        assertThat(inReadOnlyTransaction()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsRunOnThePrimaryDoNotPinTheRestOfTheRequest() {
+        assertThat(ReplicaRoutingContext.onPrimary(this::inReadOnlyTransaction)).isEqualTo("primary");
+        assertThat(inReadOnlyTransaction()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsGoToThePrimaryWhileTheReplicaLags() {
+        replicaFresh.set(false);
+        awaitReplicaHealthy(false);
+        assertThat(inReadOnlyTransaction()).isEqualTo("primary");
+
+        replicaFresh.set(true);
+        awaitReplicaHealthy(true);
+        assertThat(inReadOnlyTransaction()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsGoToThePrimaryWhenTheReplicaCannotBeReached() {
+        routing.destroy();
+        //IFEXISTS refuses to create the database, so every connection attempt fails
+        routing = newRouting(database("primary"), new DriverManagerDataSource("jdbc:h2:mem:missing;IFEXISTS=TRUE", "sa", ""));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+
+        assertThat(inReadOnlyTransaction()).isEqualTo("primary");
+    }
+
+    private ReplicaRoutingDataSource newRouting(DataSource primary, DataSource replica) {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(replica), 5, 20) {
+            @Override
+            boolean isFreshEnough(DataSource candidate) {
+                try (var connection = candidate.getConnection()) {
+                    return replicaFresh.get();
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+        };
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE IF NOT EXISTS which_database (name VARCHAR(20))");
+        setup.execute("DELETE FROM which_database");
+        setup.update("INSERT INTO which_database VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String inReadOnlyTransaction() {
+        return readOnly.execute(status -> currentDatabase());
+    }
+
+    private String inReadWriteTransaction() {
+        return readWrite.execute(status -> currentDatabase());
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM which_database", String.class);
+    }
+
+    //the health check runs every 20 ms on its own thread
+    private void awaitReplicaHealthy(boolean healthy) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (readOnlyGoesToReplica() == healthy) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("replica health did not change to " + healthy);
+    }
+
+    private boolean readOnlyGoesToReplica() {
+        boolean replica = "replica".equals(inReadOnlyTransaction());
+        ReplicaRoutingContext.clearRequest();
+        return replica;
+    }
+}
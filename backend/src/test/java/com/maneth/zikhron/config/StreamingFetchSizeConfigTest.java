@@ -0,0 +1,60 @@
+package com.maneth.zikhron.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingFetchSizeConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(StreamingFetchSizeConfig.class)
+            .withPropertyValues("spring.datasource.username=sa", "app.datasource.streaming-fetch-size=200");
+
+    @Test
+    void streamingFetchSizeBecomesAnOrdinaryOneOnOtherDatabases() {
+        contextRunner.withPropertyValues("spring.datasource.url=jdbc:h2:mem:fetch-size").run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(StreamingFetchSizeDataSource.class);
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT X FROM SYSTEM_RANGE(1, 3)")) {
+                statement.setFetchSize(Integer.MIN_VALUE);
+                assertThat(statement.getFetchSize()).isEqualTo(200);
+                int rows = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows++;
+                    }
+                }
+                assertThat(rows).isEqualTo(3);
+
+                statement.setFetchSize(50);
+                assertThat(statement.getFetchSize()).isEqualTo(50);
+            }
+        });
+    }
+
+    @Test
+    void mysqlKeepsThePoolAsItIs() {
+        contextRunner.withPropertyValues("spring.datasource.url=jdbc:mysql://localhost:3306/zikhron").run(context ->
+                assertThat(context.getBean(DataSource.class)).isInstanceOf(HikariDataSource.class));
+    }
+
+    @Test
+    void poolIsClosedWithTheContext() {
+        contextRunner.withPropertyValues("spring.datasource.url=jdbc:h2:mem:fetch-size-close").run(context -> {
+            HikariDataSource pool = (HikariDataSource) ((StreamingFetchSizeDataSource) context.getBean(DataSource.class)).getTargetDataSource();
+            context.close();
+            assertThat(pool.isClosed()).isTrue();
+        });
+    }
+}
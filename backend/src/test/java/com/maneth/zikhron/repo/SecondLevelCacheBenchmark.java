@@ -0,0 +1,133 @@
+package com.maneth.zikhron.repo;
+
+import com.maneth.zikhron.benchmark.BenchmarkSupport;
+import com.maneth.zikhron.config.HibernateCacheConfig;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//The lookups behind one booking request (the AuthUser read by the JWT filter, then the room and the user in saveBooking)
+//and the room types list, each in its own transaction as a request would run them: through the second-level and query
+//caches, and with the session told to ignore them so every lookup goes to the database.
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(HibernateCacheConfig.class)
+class SecondLevelCacheBenchmark {
+
+    private static final int USERS = 200;
+    private static final int ROOMS = 50;
+    private static final int WARMUP_REQUESTS = 5_000;
+    private static final int REQUESTS = 20_000;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record Run(long statements, long cacheHits, long nanos) {
+    }
+
+    private List<User> users() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("guest" + i + "@example.com");
+            user.setName("Guest " + i);
+            user.setPhoneNumber("0700000" + i);
+            user.setPassword("$2a$10$abcdefghijklmnopqrstuv");
+            user.setRole("USER");
+            users.add(userRepository.save(user));
+        }
+        return users;
+    }
+
+    private List<Room> rooms() {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < ROOMS; i++) {
+            Room room = new Room();
+            room.setRoomType(i % 2 == 0 ? "Suite" : "Single");
+            room.setRoomPrice(BigDecimal.valueOf(80 + i));
+            rooms.add(roomRepository.save(room));
+        }
+        return rooms;
+    }
+
+    //queries follow the session's cache mode, find() only the JPA properties
+    private void ignoreCacheIf(CacheMode cacheMode) {
+        entityManager.unwrap(Session.class).setCacheMode(cacheMode);
+        entityManager.setProperty("jakarta.persistence.cache.retrieveMode", cacheMode.getJpaRetrieveMode());
+        entityManager.setProperty("jakarta.persistence.cache.storeMode", cacheMode.getJpaStoreMode());
+    }
+
+    private Run run(List<User> users, List<Room> rooms, int requests, CacheMode cacheMode) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long started = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            User user = users.get(i % USERS);
+            Long roomId = rooms.get(i % ROOMS).getId();
+            transactionTemplate.executeWithoutResult(status -> {
+                ignoreCacheIf(cacheMode);
+                assertThat(userRepository.findAuthUserByEmail(user.getEmail())).isPresent();
+                assertThat(roomRepository.findById(roomId)).isPresent();
+                assertThat(userRepository.findById(user.getId())).isPresent();
+            });
+            transactionTemplate.executeWithoutResult(status -> {
+                ignoreCacheIf(cacheMode);
+                assertThat(roomRepository.findDistinctRoomTypes()).hasSize(2);
+            });
+        }
+        return new Run(statistics.getPrepareStatementCount(),
+                statistics.getSecondLevelCacheHitCount() + statistics.getQueryCacheHitCount(), System.nanoTime() - started);
+    }
+
+    @Test
+    void bookingLookupsWithAndWithoutTheCache() {
+        List<User> users = users();
+        List<Room> rooms = rooms();
+        run(users, rooms, WARMUP_REQUESTS, CacheMode.IGNORE);
+        run(users, rooms, WARMUP_REQUESTS, CacheMode.NORMAL);
+
+        Run uncached = run(users, rooms, REQUESTS, CacheMode.IGNORE);
+        Run cached = run(users, rooms, REQUESTS, CacheMode.NORMAL);
+
+        BenchmarkSupport.report("booking lookups and room types, %d users, %d rooms, %d requests each", USERS, ROOMS, REQUESTS);
+        BenchmarkSupport.report("%-9s %16s %16s %16s", "", "statements/req", "cache hits/req", "us/req");
+        print("uncached", uncached);
+        print("cached", cached);
+
+        assertThat(uncached.statements()).isEqualTo(4L * REQUESTS);
+        assertThat(cached.statements()).isZero();
+    }
+
+    private static void print(String name, Run run) {
+        BenchmarkSupport.report("%-9s %16.2f %16.2f %16.1f", name, (double) run.statements() / REQUESTS,
+                (double) run.cacheHits() / REQUESTS, run.nanos() / 1e3 / REQUESTS);
+    }
+}
@@ -0,0 +1,136 @@
+package com.maneth.zikhron.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.maneth.zikhron.event.RoomAvailabilityChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityBroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private AvailabilityBroadcaster broadcaster;
+
+    //stands in for a client that stopped reading: every send blocks like a write into a full socket buffer
+    private class BlockedEmitter extends SseEmitter {
+        final AtomicBoolean completed = new AtomicBoolean();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.set(true);
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        final CountDownLatch received;
+
+        RecordingEmitter(int expected) {
+            received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            received.countDown();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new AvailabilityBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(broadcaster, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 100);
+        ReflectionTestUtils.setField(broadcaster, "maxPending", 8);
+        ReflectionTestUtils.setField(broadcaster, "timeoutMinutes", 1L);
+        ReflectionTestUtils.setField(broadcaster, "stallTimeoutMillis", 60_000L);
+        broadcaster.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        broadcaster.shutdown();
+    }
+
+    private void publish(int changes) {
+        for (int i = 0; i < changes; i++) {
+            LocalDate checkIn = LocalDate.of(2030, 1, 1).plusDays(i);
+            broadcaster.onAvailabilityChanged(new RoomAvailabilityChangedEvent(1L, "Suite", checkIn, checkIn.plusDays(2)));
+        }
+    }
+
+    private double subscriberCount() {
+        return meterRegistry.get("zikhron.availability.stream.subscribers").gauge().value();
+    }
+
+    @Test
+    void blockedSubscribersDoNotDelayTheOthers() throws Exception {
+        //more blocked clients than any fixed sender pool of the old size
+        for (int i = 0; i < 16; i++) {
+            broadcaster.register(new BlockedEmitter(), null);
+        }
+        RecordingEmitter healthy = new RecordingEmitter(3);
+        broadcaster.register(healthy, "suite");
+
+        publish(3);
+
+        assertThat(healthy.received.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void subscriberTooFarBehindIsDisconnected() throws Exception {
+        BlockedEmitter laggard = new BlockedEmitter();
+        broadcaster.register(laggard, null);
+        RecordingEmitter healthy = new RecordingEmitter(10);
+        broadcaster.register(healthy, null);
+
+        //one message is taken by the blocked send, maxPending more are queued, the next one overflows;
+        //one at a time, so the healthy subscriber is never behind at all
+        for (int i = 1; i <= 10; i++) {
+            publish(1);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (healthy.received.getCount() > 10 - i && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+
+        assertThat(healthy.received.getCount()).isZero();
+        assertThat(laggard.completed).isTrue();
+        assertThat(subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    void stalledSubscriberIsDisconnectedOnTheNextHeartbeat() throws Exception {
+        ReflectionTestUtils.setField(broadcaster, "stallTimeoutMillis", 0L);
+        BlockedEmitter stalled = new BlockedEmitter();
+        broadcaster.register(stalled, null);
+        publish(2);
+        Thread.sleep(50);
+
+        broadcaster.heartbeat();
+
+        assertThat(stalled.completed).isTrue();
+        assertThat(subscriberCount()).isZero();
+    }
+}
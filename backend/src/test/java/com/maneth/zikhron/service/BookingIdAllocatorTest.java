@@ -0,0 +1,100 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.repo.IdGeneratorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//More booking requests than pool connections, each taking its id inside a transaction that already holds a connection,
+//as saveBooking does. Small blocks so the allocator keeps fetching new ones while every booking slot is busy.
+@DataJpaTest(properties = {"spring.sql.init.mode=never", "spring.datasource.url=jdbc:h2:mem:booking-ids",
+        "spring.datasource.hikari.maximum-pool-size=3", "spring.datasource.hikari.connection-timeout=2000",
+        "app.booking.id-block-size=4"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({BookingIdAllocator.class, BookingAdmissionControl.class, BookingIdAllocatorTest.Metrics.class})
+class BookingIdAllocatorTest {
+
+    private static final int CLIENTS = 12;
+    private static final int BOOKINGS_PER_CLIENT = 100;
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private BookingIdAllocator bookingIdAllocator;
+    @Autowired
+    private BookingAdmissionControl bookingAdmissionControl;
+    @Autowired
+    private IdGeneratorRepository idGeneratorRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Response book(TransactionTemplate transactionTemplate, Set<Long> ids) {
+        return transactionTemplate.execute(status -> {
+            idGeneratorRepository.count();
+            assertThat(ids.add(bookingIdAllocator.next())).as("id handed out twice").isTrue();
+            Response response = new Response();
+            response.setStatusCode(200);
+            return response;
+        });
+    }
+
+    @Test
+    void concurrentBookingsGetUniqueIdsWithoutExhaustingThePool() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                runs.add(clients.submit(() -> {
+                    int booked = 0;
+                    while (booked < BOOKINGS_PER_CLIENT) {
+                        int statusCode = bookingAdmissionControl.admit(() -> book(transactionTemplate, ids)).getStatusCode();
+                        if (statusCode == 200) {
+                            booked++;
+                        } else {
+                            //shed with 503, the client retries
+                            assertThat(statusCode).isEqualTo(503);
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                //a booking stuck waiting for a connection would fail after the 2 s connection timeout
+                run.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(CLIENTS * BOOKINGS_PER_CLIENT);
+    }
+}
@@ -0,0 +1,120 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.ZikhronRestApplication;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.entity.User;
+import com.maneth.zikhron.repo.RoomRepository;
+import com.maneth.zikhron.repo.UserRepository;
+import com.maneth.zikhron.service.impl.RoomService;
+import com.maneth.zikhron.service.impl.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Two nodes in one JVM: separate application contexts, each with its own second-level cache and token revocation list,
+//sharing one database. A change made through one node must reach the other's caches within a few polls.
+class CacheInvalidationPollerTest {
+
+    private static final long POLL_MS = 100;
+    private static final long MAX_DELAY_MS = 5_000;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(ZikhronRestApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:two-nodes;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--spring.sql.init.mode=never",
+                "--server.port=0",
+                "--aws.s3.access.key=x",
+                "--aws.s3.secret.key=x",
+                "--aws.s3.endpoint=http://localhost:1",
+                "--app.booking.confirmation-code.key=two-nodes-test-key-0123456789abcdef",
+                "--app.warmup.enabled=false",
+                "--app.cache.invalidation.poll-ms=" + POLL_MS);
+    }
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long started = System.currentTimeMillis();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis() - started).as("waited for the other node").isLessThan(MAX_DELAY_MS);
+            Thread.sleep(20);
+        }
+    }
+
+    private static boolean cached(ConfigurableApplicationContext node, Class<?> entity, Long id) {
+        return node.getBean(EntityManagerFactory.class).getCache().contains(entity, id);
+    }
+
+    @Test
+    void roomUpdatedOnOneNodeIsRefreshedInTheOthersCache() throws InterruptedException {
+        Room room = new Room();
+        room.setRoomType("Suite");
+        room.setRoomPrice(BigDecimal.valueOf(200));
+        Long roomId = nodeA.getBean(RoomRepository.class).save(room).getId();
+
+        RoomRepository roomsOnB = nodeB.getBean(RoomRepository.class);
+        assertThat(roomsOnB.findById(roomId).orElseThrow().getRoomPrice()).isEqualByComparingTo("200");
+        assertThat(cached(nodeB, Room.class, roomId)).isTrue();
+
+        assertThat(nodeA.getBean(RoomService.class).updateRoom(roomId, null, null, BigDecimal.valueOf(260), null).getStatusCode())
+                .isEqualTo(200);
+
+        //the poller reloads the room for the search index, so the fresh row ends up back in B's cache
+        await(() -> roomsOnB.findById(roomId).orElseThrow().getRoomPrice().compareTo(BigDecimal.valueOf(260)) == 0);
+        assertThat(cached(nodeB, Room.class, roomId)).isTrue();
+    }
+
+    @Test
+    void userDeletedOnOneNodeIsGoneFromTheOthersCachesAndTokensAreRevoked() throws InterruptedException {
+        User user = new User();
+        user.setEmail("guest@example.com");
+        user.setName("Guest");
+        user.setPhoneNumber("0700000000");
+        user.setPassword("x");
+        user.setRole("USER");
+        Long userId = nodeA.getBean(UserRepository.class).save(user).getId();
+
+        UserRepository usersOnB = nodeB.getBean(UserRepository.class);
+        TokenRevocationList revocationsOnB = nodeB.getBean(TokenRevocationList.class);
+        Date issuedAt = new Date(System.currentTimeMillis() - 1_000);
+        assertThat(usersOnB.findByEmail("guest@example.com")).isPresent();
+        assertThat(cached(nodeB, User.class, userId)).isTrue();
+        assertThat(revocationsOnB.isRevoked(null, "guest@example.com", issuedAt)).isFalse();
+
+        assertThat(nodeA.getBean(UserService.class).deleteUser(String.valueOf(userId)).getStatusCode()).isEqualTo(200);
+
+        await(() -> revocationsOnB.isRevoked(null, "guest@example.com", issuedAt));
+        await(() -> usersOnB.findByEmail("guest@example.com").isEmpty());
+        assertThat(usersOnB.findAuthUserByEmail("guest@example.com")).isEmpty();
+        assertThat(usersOnB.findById(userId)).isEmpty();
+    }
+}
@@ -0,0 +1,120 @@
+package com.maneth.zikhron.service;
+
+import com.maneth.zikhron.dto.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private IdempotencyStore store(int maxEntries, long ttlMinutes) {
+        IdempotencyStore store = new IdempotencyStore();
+        ReflectionTestUtils.setField(store, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(store, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(store, "ttlMinutes", ttlMinutes);
+        ReflectionTestUtils.setField(store, "waitTimeoutMillis", 5000L);
+        store.init();
+        return store;
+    }
+
+    private double entryCount() {
+        return meterRegistry.get("zikhron.idempotency.entries").gauge().value();
+    }
+
+    private static Response ok(String code) {
+        Response response = new Response();
+        response.setStatusCode(200);
+        response.setBookingConfirmationCode(code);
+        return response;
+    }
+
+    @Test
+    void retryReplaysTheFirstResult() {
+        IdempotencyStore store = store(100, 60);
+        AtomicInteger runs = new AtomicInteger();
+
+        Response first = store.execute("u", "k", "f", () -> ok("CODE" + runs.incrementAndGet()));
+        Response retry = store.execute("u", "k", "f", () -> ok("CODE" + runs.incrementAndGet()));
+
+        assertThat(runs).hasValue(1);
+        assertThat(retry.getBookingConfirmationCode()).isEqualTo(first.getBookingConfirmationCode());
+        assertThat(store.execute("u", "k", "other", () -> ok("X")).getStatusCode()).isEqualTo(422);
+    }
+
+    @Test
+    void entriesStayWithinTheLimit() {
+        IdempotencyStore store = store(10, 60);
+        for (int i = 0; i < 100; i++) {
+            store.execute("u", "k" + i, "f", () -> ok("C"));
+            assertThat(entryCount()).isLessThanOrEqualTo(10);
+        }
+    }
+
+    @Test
+    void inFlightRequestSurvivesTrimmingAndIsTrimmedOnceDone() throws Exception {
+        IdempotencyStore store = store(2, 60);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response> slow = executor.submit(() -> store.execute("u", "slow", "f", () -> {
+                started.countDown();
+                awaitQuietly(release);
+                return ok("SLOW");
+            }));
+            started.await();
+
+            for (int i = 0; i < 5; i++) {
+                store.execute("u", "k" + i, "f", () -> ok("C"));
+            }
+            //the completed entries are trimmed around the in-flight one
+            assertThat(entryCount()).isEqualTo(2);
+
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS).getBookingConfirmationCode()).isEqualTo("SLOW");
+            for (int i = 5; i < 10; i++) {
+                store.execute("u", "k" + i, "f", () -> ok("C"));
+            }
+            assertThat(entryCount()).isEqualTo(2);
+            //gone with the other old entries instead of staying behind outside the queue
+            AtomicInteger reruns = new AtomicInteger();
+            store.execute("u", "slow", "f", () -> ok("AGAIN" + reruns.incrementAndGet()));
+            assertThat(reruns).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredKeyThatRunsAgainIsNotTrimmedByItsOldPosition() throws Exception {
+        IdempotencyStore store = store(2, 0);
+        store.execute("u", "a", "f", () -> ok("A1"));
+        Thread.sleep(5);
+        //expired, so this runs again and replaces the entry queued first
+        assertThat(store.execute("u", "a", "f", () -> ok("A2")).getBookingConfirmationCode()).isEqualTo("A2");
+        assertThat(entryCount()).isEqualTo(1);
+
+        ReflectionTestUtils.setField(store, "ttlMinutes", 60L);
+        store.execute("u", "b", "f", () -> ok("B"));
+        store.execute("u", "c", "f", () -> ok("C"));
+        //a, b and c are live; only the oldest live one goes, not a because of its stale first position
+        assertThat(entryCount()).isEqualTo(2);
+        assertThat(store.execute("u", "c", "f", () -> ok("C2")).getBookingConfirmationCode()).isEqualTo("C");
+        assertThat(store.execute("u", "b", "f", () -> ok("B2")).getBookingConfirmationCode()).isEqualTo("B");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.maneth.zikhron.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maneth.zikhron.benchmark.BenchmarkSupport;
+import com.maneth.zikhron.benchmark.BenchmarkSupport.CountingOutputStream;
+import com.maneth.zikhron.benchmark.BenchmarkSupport.Cost;
+import com.maneth.zikhron.dto.Response;
+import com.maneth.zikhron.dto.RoomDTO;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.utils.Utils;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+//GET /rooms/all written through StreamingListWriter against the Response-holding-a-list it replaced: allocation, GC
+//activity and the heap held while the body is written, for a catalog of ROWS rooms.
+class StreamingListWriterBenchmark {
+
+    private static final int ROWS = 200_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StreamingListWriter writer = writer();
+
+    private StreamingListWriter writer() {
+        StreamingListWriter writer = new StreamingListWriter();
+        ReflectionTestUtils.setField(writer, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(writer, "entityManager", mock(EntityManager.class));
+        ReflectionTestUtils.setField(writer, "transactionManager", new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        });
+        writer.init();
+        return writer;
+    }
+
+    //rows as the database cursor hands them over: created on demand, not held anywhere
+    private static Stream<Room> rooms() {
+        return IntStream.range(0, ROWS).mapToObj(i -> {
+            Room room = new Room();
+            room.setId((long) i);
+            room.setRoomType(i % 3 == 0 ? "Suite" : "Single");
+            room.setRoomPrice(BigDecimal.valueOf(80 + i % 200));
+            room.setRoomPhotoUrl("https://zikhron-hotel-images.s3.amazonaws.com/" + i + ".jpg");
+            room.setRoomDescription("Room " + i + " with a garden view, air conditioning and a mini bar");
+            return room;
+        });
+    }
+
+    private long streamed(long[] liveHeap) {
+        CountingOutputStream out = new CountingOutputStream();
+        writer.write(out, MediaType.APPLICATION_JSON, "roomList", StreamingListWriterBenchmark::rooms, room -> {
+            if (liveHeap != null && room.getId() == ROWS / 2) {
+                liveHeap[0] = BenchmarkSupport.liveHeap();
+            }
+            return Utils.mapRoomEntityToRoomDTO(room);
+        });
+        return out.count;
+    }
+
+    //what getAllRooms did before: every entity, then every DTO, then the whole Response
+    private long materialized(long[] liveHeap) {
+        List<Room> rooms = rooms().toList();
+        List<RoomDTO> roomDTOList = rooms.stream().map(Utils::mapRoomEntityToRoomDTO).toList();
+        Response response = new Response();
+        response.setStatusCode(200);
+        response.setMessage("successful");
+        response.setRoomList(roomDTOList);
+        if (liveHeap != null) {
+            liveHeap[0] = BenchmarkSupport.liveHeap();
+        }
+        CountingOutputStream out = new CountingOutputStream();
+        try {
+            objectMapper.writeValue(out, response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.count;
+    }
+
+    @Test
+    void streamingAgainstMaterializedList() {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            streamed(null);
+            materialized(null);
+        }
+
+        long baseline = BenchmarkSupport.liveHeap();
+        long[] streamedHeap = new long[1];
+        long[] materializedHeap = new long[1];
+        streamed(streamedHeap);
+        materialized(materializedHeap);
+
+        Cost streamed = BenchmarkSupport.measure(() -> {
+            for (int i = 0; i < RUNS; i++) {
+                streamed(null);
+            }
+        });
+        Cost materialized = BenchmarkSupport.measure(() -> {
+            for (int i = 0; i < RUNS; i++) {
+                materialized(null);
+            }
+        });
+
+        BenchmarkSupport.report("/rooms/all, %d rooms, %d runs each", ROWS, RUNS);
+        BenchmarkSupport.report("%-13s %14s %16s %12s %12s %12s", "", "alloc/run", "alloc/row", "GCs/run", "GC ms/run", "ms/run");
+        print("streamed", streamed);
+        print("materialized", materialized);
+        BenchmarkSupport.report("heap held while writing: streamed %s, materialized %s",
+                BenchmarkSupport.mb(streamedHeap[0] - baseline), BenchmarkSupport.mb(materializedHeap[0] - baseline));
+
+        assertThat(streamedHeap[0] - baseline).isLessThan((materializedHeap[0] - baseline) / 10);
+    }
+
+    private static void print(String name, Cost cost) {
+        BenchmarkSupport.report("%-13s %14s %14d B %12.1f %12.1f %12.1f", name,
+                BenchmarkSupport.mb(cost.allocatedBytes() / RUNS), cost.allocatedBytes() / RUNS / ROWS,
+                (double) cost.collections() / RUNS, (double) cost.collectionMillis() / RUNS, cost.nanos() / 1e6 / RUNS);
+    }
+}
@@ -0,0 +1,209 @@
+package com.maneth.zikhron.service.impl;
+
+import com.maneth.zikhron.config.StreamingFetchSizeConfig;
+import com.maneth.zikhron.entity.Booking;
+import com.maneth.zikhron.entity.BookingHistory;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.entity.User;
+import com.maneth.zikhron.repo.BookingHistoryRepository;
+import com.maneth.zikhron.repo.BookingRepository;
+import com.maneth.zikhron.repo.DailyOccupancyRollupRepository;
+import com.maneth.zikhron.repo.RoomRepository;
+import com.maneth.zikhron.repo.UserRepository;
+import com.maneth.zikhron.service.*;
+import com.maneth.zikhron.utils.JWTUtils;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Removing a user or a room takes the same number of statements however many bookings go with it, and leaves the
+//occupancy rollups as a rebuild would compute them. Not transactional itself, so each service call commits and every
+//statement really runs. The rollup adjustments are JDBC batches of their own and not in the Hibernate statement count.
+//H2 runs in MySQL mode for the rollup upsert, on the application's pool so the streaming fetch size is translated.
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "spring.sql.init.mode=never",
+        "spring.datasource.url=jdbc:h2:mem:delete-statements;MODE=MySQL;DATABASE_TO_LOWER=TRUE"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserService.class, RoomService.class, OccupancyRollupService.class, StreamingFetchSizeConfig.class})
+class DeleteStatementCountTest {
+
+    private static final AtomicLong NEXT_BOOKING_ID = new AtomicLong(1);
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingHistoryRepository bookingHistoryRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private OccupancyRollupService occupancyRollupService;
+    @Autowired
+    private DailyOccupancyRollupRepository rollupRepository;
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+    @MockitoBean
+    private JWTUtils jwtUtils;
+    @MockitoBean
+    private AuthenticationManager authenticationManager;
+    @MockitoBean
+    private StreamingListWriter streamingListWriter;
+    @MockitoBean
+    private CacheInvalidationLog cacheInvalidationLog;
+    @MockitoBean
+    private TokenRevocationList tokenRevocationList;
+    @MockitoBean
+    private AwsS3Service awsS3Service;
+    @MockitoBean
+    private RoomSearchIndex roomSearchIndex;
+    @MockitoBean
+    private AvailabilitySearchCoalescer availabilitySearchCoalescer;
+    @MockitoBean
+    private AvailabilityCache availabilityCache;
+    @MockitoBean
+    private RoomHoldRegistry roomHoldRegistry;
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setName("Guest");
+        user.setPhoneNumber("1");
+        user.setPassword("x");
+        user.setRole("USER");
+        return userRepository.save(user);
+    }
+
+    private Room room() {
+        Room room = new Room();
+        room.setRoomType("Suite");
+        room.setRoomPrice(BigDecimal.valueOf(200));
+        return roomRepository.save(room);
+    }
+
+    //bookings active and archived bookings of the user in the room
+    private void book(User user, Room room, int bookings) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < bookings; i++) {
+                LocalDate checkIn = LocalDate.now().plusDays(10 + 3L * i);
+                Booking booking = new Booking();
+                booking.setId(NEXT_BOOKING_ID.getAndIncrement());
+                booking.setCheckInDate(checkIn);
+                booking.setCheckOutDate(checkIn.plusDays(2));
+                booking.setNumOfAdults(1);
+                booking.setNumOfChildren(1);
+                booking.setUser(user);
+                booking.setRoom(room);
+                bookingRepository.insert(booking);
+
+                BookingHistory archived = new BookingHistory();
+                archived.setId(NEXT_BOOKING_ID.getAndIncrement());
+                archived.setCheckInDate(checkIn.minusYears(2));
+                archived.setCheckOutDate(checkIn.minusYears(2).plusDays(2));
+                archived.setArchivedAt(LocalDateTime.now());
+                archived.setUser(user);
+                archived.setRoom(room);
+                bookingHistoryRepository.save(archived);
+            }
+        });
+    }
+
+    //nights sold and revenue per stay date and room type; rows adjusted down to nothing count as absent
+    private Map<String, String> rollups() {
+        return rollupRepository.findAll().stream()
+                .filter(rollup -> rollup.getRoomNightsSold() != 0 || rollup.getRevenue().signum() != 0)
+                .collect(Collectors.toMap(rollup -> rollup.getStayDate() + " " + rollup.getRoomType(),
+                        rollup -> rollup.getRoomNightsSold() + " " + rollup.getRevenue().stripTrailingZeros().toPlainString()));
+    }
+
+    //what the incremental adjustments left must match a rebuild from the remaining bookings and archived bookings
+    private void assertRollupsMatchARebuild() {
+        Map<String, String> adjusted = rollups();
+        occupancyRollupService.rebuild();
+        assertThat(adjusted).isEqualTo(rollups());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private long statementsToDeleteUser(String email, int bookings) {
+        User user = user(email);
+        book(user, room(), bookings);
+        occupancyRollupService.rebuild();
+        statistics().clear();
+
+        assertThat(userService.deleteUser(String.valueOf(user.getId())).getStatusCode()).isEqualTo(200);
+
+        long statements = statistics().getPrepareStatementCount();
+        assertThat(userRepository.findById(user.getId())).isEmpty();
+        assertThat(bookingRepository.findStaysForUser(user.getId())).isEmpty();
+        assertThat(bookingHistoryRepository.findStaysForUser(user.getId())).isEmpty();
+        assertRollupsMatchARebuild();
+        return statements;
+    }
+
+    private long statementsToDeleteRoom(String email, int bookings) {
+        Room room = room();
+        book(user(email), room, bookings);
+        occupancyRollupService.rebuild();
+        statistics().clear();
+
+        assertThat(roomService.deleteRoom(room.getId()).getStatusCode()).isEqualTo(200);
+
+        long statements = statistics().getPrepareStatementCount();
+        assertThat(roomRepository.findById(room.getId())).isEmpty();
+        assertThat(bookingRepository.findStaysForRoom(room.getId())).isEmpty();
+        assertThat(bookingHistoryRepository.findStaysForRoom(room.getId())).isEmpty();
+        assertRollupsMatchARebuild();
+        return statements;
+    }
+
+    @Test
+    void deletingAUserTakesAFixedNumberOfStatements() {
+        long withOneBooking = statementsToDeleteUser("one@example.com", 1);
+        long withManyBookings = statementsToDeleteUser("many@example.com", 40);
+
+        assertThat(withManyBookings).isEqualTo(withOneBooking);
+        assertThat(withOneBooking).isLessThanOrEqualTo(7);
+    }
+
+    @Test
+    void deletingARoomTakesAFixedNumberOfStatements() {
+        long withOneBooking = statementsToDeleteRoom("room-one@example.com", 1);
+        long withManyBookings = statementsToDeleteRoom("room-many@example.com", 40);
+
+        assertThat(withManyBookings).isEqualTo(withOneBooking);
+        assertThat(withOneBooking).isLessThanOrEqualTo(7);
+    }
+}
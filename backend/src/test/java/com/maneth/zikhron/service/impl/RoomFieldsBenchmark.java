@@ -0,0 +1,133 @@
+package com.maneth.zikhron.service.impl;
+
+import com.maneth.zikhron.benchmark.BenchmarkSupport;
+import com.maneth.zikhron.benchmark.BenchmarkSupport.CountingOutputStream;
+import com.maneth.zikhron.benchmark.BenchmarkSupport.Cost;
+import com.maneth.zikhron.config.HibernateCacheConfig;
+import com.maneth.zikhron.config.StreamingFetchSizeConfig;
+import com.maneth.zikhron.entity.Room;
+import com.maneth.zikhron.repo.RoomRepository;
+import com.maneth.zikhron.service.*;
+import com.maneth.zikhron.utils.FieldSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//GET /rooms/all through RoomService.writeAllRooms for a catalog of ROOMS rooms: every field against the fields the room
+//list page shows (?fields=roomType,roomPrice,roomPhotoUrl), in each encoding the endpoint negotiates. Payload size,
+//allocation and time per response. Runs on the application's own pool and caches: StreamingFetchSizeConfig turns the
+//MySQL streaming fetch size into one H2 accepts, and HibernateCacheConfig stands in for the by-value JCache defaults.
+@DataJpaTest(properties = {"spring.sql.init.mode=never", "spring.datasource.url=jdbc:h2:mem:room-fields"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({RoomService.class, StreamingListWriter.class, StreamingFetchSizeConfig.class, HibernateCacheConfig.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class RoomFieldsBenchmark {
+
+    private static final int ROOMS = 5_000;
+    private static final int WARMUP_RUNS = 10;
+    private static final int RUNS = 20;
+    private static final String LIST_PAGE_FIELDS = "roomType,roomPrice,roomPhotoUrl";
+
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @MockitoBean
+    private OccupancyRollupService occupancyRollupService;
+    @MockitoBean
+    private CacheInvalidationLog cacheInvalidationLog;
+    @MockitoBean
+    private AwsS3Service awsS3Service;
+    @MockitoBean
+    private RoomSearchIndex roomSearchIndex;
+    @MockitoBean
+    private AvailabilitySearchCoalescer availabilitySearchCoalescer;
+    @MockitoBean
+    private AvailabilityCache availabilityCache;
+    @MockitoBean
+    private RoomHoldRegistry roomHoldRegistry;
+
+    private record Run(long bytes, Cost cost) {
+    }
+
+    private void rooms() {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < ROOMS; i++) {
+            Room room = new Room();
+            room.setRoomType(i % 3 == 0 ? "Suite" : "Single");
+            room.setRoomPrice(BigDecimal.valueOf(80 + i % 200));
+            room.setRoomPhotoUrl("https://zikhron-hotel-images.s3.amazonaws.com/" + i + ".jpg");
+            room.setRoomDescription("Room " + i + " on the garden side of the hotel, with a king size bed, air conditioning, "
+                    + "a mini bar, a rain shower and a balcony looking over the pool. Breakfast is served in the room on request "
+                    + "and late checkout can be arranged at the front desk.");
+            rooms.add(room);
+        }
+        roomRepository.saveAll(rooms);
+    }
+
+    private long write(MediaType format, FieldSet fields) {
+        CountingOutputStream out = new CountingOutputStream();
+        roomService.writeAllRooms(out, format, fields);
+        return out.count;
+    }
+
+    private Run run(MediaType format, FieldSet fields) {
+        long[] bytes = new long[1];
+        Cost cost = BenchmarkSupport.measure(() -> {
+            for (int i = 0; i < RUNS; i++) {
+                bytes[0] = write(format, fields);
+            }
+        });
+        return new Run(bytes[0], cost);
+    }
+
+    @Test
+    void allFieldsAgainstTheListPageFields() {
+        rooms();
+        List<MediaType> formats = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, StreamingListWriter.APPLICATION_SMILE);
+        List<FieldSet> fieldSets = List.of(FieldSet.ALL, FieldSet.parse(LIST_PAGE_FIELDS));
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            for (MediaType format : formats) {
+                fieldSets.forEach(fields -> write(format, fields));
+            }
+        }
+
+        BenchmarkSupport.report("/rooms/all, %d rooms, %d runs each", ROOMS, RUNS);
+        BenchmarkSupport.report("%-28s %-10s %12s %12s %12s", "", "fields", "payload", "alloc/run", "ms/run");
+        long[] jsonBytes = new long[2];
+        for (MediaType format : formats) {
+            Run all = run(format, fieldSets.get(0));
+            Run listPage = run(format, fieldSets.get(1));
+            print(format, "all", all);
+            print(format, "list page", listPage);
+            if (format.equals(MediaType.APPLICATION_JSON)) {
+                jsonBytes[0] = all.bytes();
+                jsonBytes[1] = listPage.bytes();
+            }
+            assertThat(listPage.bytes()).isLessThan(all.bytes());
+        }
+
+        assertThat(jsonBytes[1]).isLessThan(jsonBytes[0] / 2);
+    }
+
+    private static void print(MediaType format, String fields, Run run) {
+        BenchmarkSupport.report("%-28s %-10s %9.1f KB %12s %12.2f", format, fields, run.bytes() / 1024.0,
+                BenchmarkSupport.mb(run.cost().allocatedBytes() / RUNS), run.cost().nanos() / 1e6 / RUNS);
+    }
+}
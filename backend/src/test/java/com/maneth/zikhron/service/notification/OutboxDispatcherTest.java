@@ -0,0 +1,158 @@
+package com.maneth.zikhron.service.notification;
+
+import com.maneth.zikhron.entity.OutboxEvent;
+import com.maneth.zikhron.repo.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboxDispatcherTest {
+
+    private final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    private final TrackingTransactionManager transactionManager = new TrackingTransactionManager();
+    private final RecordingSink mail = new RecordingSink("smtp", 0);
+    private final RecordingSink webhook = new RecordingSink("webhook", 1);
+    private OutboxDispatcher dispatcher;
+
+    private static class TrackingTransactionManager implements PlatformTransactionManager {
+
+        boolean open;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            open = true;
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            open = false;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            open = false;
+        }
+    }
+
+    private class RecordingSink implements NotificationSink {
+
+        private final String name;
+        private int failuresLeft;
+        final List<Long> delivered = new ArrayList<>();
+        boolean calledInTransaction;
+
+        RecordingSink(String name, int failures) {
+            this.name = name;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void deliver(OutboxEvent event) throws Exception {
+            calledInTransaction |= transactionManager.open;
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new Exception("unavailable");
+            }
+            delivered.add(event.getId());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "outboxEventRepository", repository);
+        ReflectionTestUtils.setField(dispatcher, "sinks", List.of(mail, webhook));
+        ReflectionTestUtils.setField(dispatcher, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(dispatcher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 8);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffSeconds", 5L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "claimSeconds", 300L);
+        dispatcher.init();
+    }
+
+    private static OutboxEvent pending(long id) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setStatus(OutboxEvent.Status.PENDING);
+        event.setNextAttemptAt(LocalDateTime.now());
+        return event;
+    }
+
+    @Test
+    void sinksAreCalledOutsideTheTransaction() {
+        OutboxEvent event = pending(1);
+        when(repository.lockDueBatch(any(), any())).thenReturn(List.of(event));
+
+        dispatcher.dispatch();
+
+        assertThat(mail.calledInTransaction).isFalse();
+        assertThat(webhook.calledInTransaction).isFalse();
+    }
+
+    @Test
+    void onlyTheFailedSinkIsRetried() {
+        OutboxEvent event = pending(1);
+        when(repository.lockDueBatch(any(), any())).thenReturn(List.of(event));
+
+        dispatcher.dispatch();
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEvent.Status.PENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getDeliveredSinks()).isEqualTo("smtp");
+        assertThat(event.getLastError()).startsWith("webhook: ");
+        assertThat(event.getNextAttemptAt()).isAfter(LocalDateTime.now());
+
+        dispatcher.dispatch();
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEvent.Status.SENT);
+        assertThat(event.getDeliveredSinks()).isEqualTo("smtp,webhook");
+        assertThat(mail.delivered).containsExactly(1L);
+        assertThat(webhook.delivered).containsExactly(1L);
+    }
+
+    @Test
+    void claimedEventsAreLeasedWhileDelivering() {
+        OutboxEvent event = pending(1);
+        when(repository.lockDueBatch(any(), any())).thenReturn(List.of(event));
+        List<LocalDateTime> leasedUntil = new ArrayList<>();
+        ReflectionTestUtils.setField(dispatcher, "sinks", List.<NotificationSink>of(new NotificationSink() {
+            @Override
+            public String name() {
+                return "probe";
+            }
+
+            @Override
+            public void deliver(OutboxEvent delivered) {
+                leasedUntil.add(delivered.getNextAttemptAt());
+            }
+        }));
+
+        dispatcher.dispatch();
+
+        //other dispatchers skip the event until the lease runs out
+        assertThat(leasedUntil.get(0)).isAfter(LocalDateTime.now().plusSeconds(250));
+        assertThat(event.getStatus()).isEqualTo(OutboxEvent.Status.SENT);
+    }
+}
@@ -0,0 +1,148 @@
+package com.maneth.zikhron.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Bookings against a database with a fixed connection pool, simulated in virtual time. Requests wait in line for a
+//connection and a booking only counts when it answers within the client timeout; once the line is longer than that
+//timeout the pool stays busy with bookings nobody is waiting for any more.
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000;
+
+    private static final int CONNECTIONS = 10;
+    private static final long MIN_SERVICE = 15 * MS;
+    private static final long MAX_SERVICE = 25 * MS;
+    private static final long CLIENT_TIMEOUT = 1000 * MS;
+    //a booking turned away before any query runs, e.g. for a bad date range
+    private static final long CLIENT_ERROR = MS / 20;
+    private static final long DURATION = 20_000 * MS;
+    //bookings per second the pool can complete
+    private static final double CAPACITY = CONNECTIONS * 1e9 / ((MIN_SERVICE + MAX_SERVICE) / 2.0);
+
+    private record Completion(long at, long latency, AdaptiveConcurrencyLimiter.Outcome outcome) {
+    }
+
+    private record Result(long arrivals, long clientErrors, long goodput, long late, long shed) {
+
+        double goodputPerSecond() {
+            return goodput * 1e9 / DURATION;
+        }
+    }
+
+    private static Result simulate(double arrivalsPerSecond, boolean admissionControl) {
+        return simulate(arrivalsPerSecond, admissionControl, 0);
+    }
+
+    //every clientErrorEvery-th request (none for 0) is a client error answered without touching the database
+    private static Result simulate(double arrivalsPerSecond, boolean admissionControl, int clientErrorEvery) {
+        Random random = new Random(42);
+        long[] now = new long[1];
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 24, 2.0, 0.9, () -> now[0]);
+
+        //when each connection is next free; bookings take them in arrival order
+        PriorityQueue<Long> connections = new PriorityQueue<>();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            connections.add(0L);
+        }
+        PriorityQueue<Completion> completions = new PriorityQueue<>((a, b) -> Long.compare(a.at(), b.at()));
+
+        long interval = (long) (1e9 / arrivalsPerSecond);
+        long arrivals = 0, clientErrors = 0, goodput = 0, late = 0, shed = 0;
+        for (long arrival = 0; arrival < DURATION; arrival += interval) {
+            while (!completions.isEmpty() && completions.peek().at() <= arrival) {
+                Completion completion = completions.poll();
+                now[0] = completion.at();
+                if (admissionControl) {
+                    limiter.release(completion.latency(), completion.outcome());
+                }
+            }
+            now[0] = arrival;
+            arrivals++;
+
+            if (admissionControl && !limiter.tryAcquire()) {
+                shed++;
+                continue;
+            }
+            if (clientErrorEvery > 0 && arrivals % clientErrorEvery == 0) {
+                clientErrors++;
+                completions.add(new Completion(arrival + CLIENT_ERROR, CLIENT_ERROR, AdaptiveConcurrencyLimiter.Outcome.IGNORED));
+                continue;
+            }
+            long start = Math.max(arrival, connections.poll());
+            long end = start + MIN_SERVICE + (long) (random.nextDouble() * (MAX_SERVICE - MIN_SERVICE));
+            connections.add(end);
+            completions.add(new Completion(end, end - arrival, AdaptiveConcurrencyLimiter.Outcome.SUCCEEDED));
+            if (end - arrival <= CLIENT_TIMEOUT) {
+                goodput++;
+            } else {
+                late++;
+            }
+        }
+        return new Result(arrivals, clientErrors, goodput, late, shed);
+    }
+
+    @Test
+    void withoutAdmissionControlGoodputCollapsesUnderOverload() {
+        Result result = simulate(2 * CAPACITY, false);
+
+        assertThat(result.goodputPerSecond()).isLessThan(0.1 * CAPACITY);
+        assertThat(result.late()).isGreaterThan(result.arrivals() / 2);
+    }
+
+    @Test
+    void admissionControlKeepsGoodputNearCapacityUnderOverload() {
+        Result result = simulate(2 * CAPACITY, true);
+
+        assertThat(result.goodputPerSecond()).isGreaterThan(0.85 * CAPACITY);
+        assertThat(result.late()).isZero();
+        assertThat(result.shed()).isGreaterThan(result.arrivals() / 3);
+    }
+
+    @Test
+    void admissionControlShedsNothingBelowCapacity() {
+        Result result = simulate(0.5 * CAPACITY, true);
+
+        assertThat(result.shed()).isZero();
+        assertThat(result.goodput()).isEqualTo(result.arrivals());
+    }
+
+    @Test
+    void fastClientErrorsDoNotShrinkTheLimit() {
+        Result result = simulate(0.8 * CAPACITY, true, 20);
+
+        assertThat(result.clientErrors()).isPositive();
+        assertThat(result.shed()).isZero();
+        assertThat(result.goodput()).isEqualTo(result.arrivals() - result.clientErrors());
+    }
+
+    @Test
+    void admissionControlKeepsGoodputNearCapacityWithClientErrorsMixedIn() {
+        Result result = simulate(2 * CAPACITY, true, 20);
+
+        assertThat(result.goodputPerSecond()).isGreaterThan(0.85 * CAPACITY);
+        assertThat(result.late()).isZero();
+    }
+
+    @Test
+    void limitStopsAtTheConfiguredMaximum() {
+        long[] now = new long[1];
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 24, 2.0, 0.9, () -> now[0]);
+        for (int round = 0; round < 1000; round++) {
+            int admitted = 0;
+            while (limiter.tryAcquire()) {
+                admitted++;
+            }
+            now[0] += 10 * MS;
+            for (int i = 0; i < admitted; i++) {
+                limiter.release(10 * MS, AdaptiveConcurrencyLimiter.Outcome.SUCCEEDED);
+            }
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(24);
+    }
+}
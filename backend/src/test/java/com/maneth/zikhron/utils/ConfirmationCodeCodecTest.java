@@ -0,0 +1,33 @@
+package com.maneth.zikhron.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfirmationCodeCodecTest {
+
+    private final ConfirmationCodeCodec codec = new ConfirmationCodeCodec("codec-test-key-0123456789abcdefghij");
+
+    @Test
+    void codesRoundTripWhateverTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        //Turkish upper-cases 'i' to a dotted capital I, which is not a base 36 digit
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            int withI = 0;
+            for (long bookingId = 1; bookingId <= 2_000; bookingId++) {
+                String code = codec.encode(bookingId);
+                assertThat(code).matches("[0-9A-Z]{" + ConfirmationCodeCodec.CODE_LENGTH + "}");
+                assertThat(codec.decode(code)).contains(bookingId);
+                if (code.indexOf('I') >= 0) {
+                    withI++;
+                }
+            }
+            assertThat(withI).isPositive();
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -9,6 +9,7 @@ const RoomSearch = ({ handleSearchResult }) => {
   const [roomType, setRoomType] = useState('');
   const [roomTypes, setRoomTypes] = useState([]);
   const [error, setError] = useState('');
+  const [activeSearch, setActiveSearch] = useState(null);
 
   useEffect(() => {
     const fetchRoomTypes = async () => {
@@ -22,6 +23,39 @@ const RoomSearch = ({ handleSearchResult }) => {
     fetchRoomTypes();
   }, []);
 
+  /**Keeps the last successful search up to date: re-runs it when a room of the searched type changes on overlapping dates */
+  useEffect(() => {
+    if (!activeSearch) {
+      return;
+    }
+    let timer = null;
+    const refresh = async () => {
+      try {
+        const response = await ApiService.getAvailableRoomsByDateAndType(activeSearch.checkInDate, activeSearch.checkOutDate, activeSearch.roomType);
+        if (response.statusCode === 200) {
+          handleSearchResult(response.roomList);
+        }
+      } catch (error) {
+        console.error('Error refreshing available rooms:', error.message);
+      }
+    };
+    const source = ApiService.subscribeToAvailability((change) => {
+      // whole-room changes (added, edited or removed) have no dates
+      const overlaps = !change.checkInDate || !change.checkOutDate
+        || (change.checkInDate <= activeSearch.checkOutDate && change.checkOutDate >= activeSearch.checkInDate);
+      if (!overlaps) {
+        return;
+      }
+      // a burst of changes is answered with one search
+      clearTimeout(timer);
+      timer = setTimeout(refresh, 500);
+    }, activeSearch.roomType);
+    return () => {
+      clearTimeout(timer);
+      source.close();
+    };
+  }, [activeSearch, handleSearchResult]);
+
   /**This methods is going to be used to show errors */
   const showError = (message, timeout = 5000) => {
     setError(message);
@@ -50,6 +84,7 @@ const RoomSearch = ({ handleSearchResult }) => {
           return
         }
         handleSearchResult(response.roomList);
+        setActiveSearch({ checkInDate: formattedStartDate, checkOutDate: formattedEndDate, roomType });
         setError('');
       }
     } catch (error) {
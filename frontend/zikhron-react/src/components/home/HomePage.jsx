@@ -1,6 +1,6 @@
-import React, { useState } from "react";
-// import RoomResult from "../common/RoomResult";
-// import RoomSearch from "../common/RoomSearch";
+import React, { useState, useCallback } from "react";
+import RoomResult from "../common/RoomResult";
+import RoomSearch from "../common/RoomSearch";
 
 
 
@@ -10,9 +10,10 @@ const HomePage = () => {
     const [roomSearchResults, setRoomSearchResults] = useState([]);
 
     // Function to handle search results
-    const handleSearchResult = (results) => {
+    // stable across renders, RoomSearch resubscribes to availability changes whenever it changes
+    const handleSearchResult = useCallback((results) => {
         setRoomSearchResults(results);
-    };
+    }, []);
 
     return (
         <div className="home">
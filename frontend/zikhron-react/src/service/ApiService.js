@@ -101,6 +101,15 @@ export default class ApiService {
         return result.data
     }
 
+    /* This subscribes to availability changes (room id, type and dates) instead of re-polling the searches.
+       onChange gets each change; call close() on the returned EventSource when done */
+    static subscribeToAvailability(onChange, roomType) {
+        const query = roomType ? `?roomType=${encodeURIComponent(roomType)}` : "";
+        const source = new EventSource(`${apiUrl}/rooms/availability-stream${query}`);
+        source.addEventListener("availability", (event) => onChange(JSON.parse(event.data)));
+        return source;
+    }
+
     /* This  gets all room types from thee database */
     static async getRoomTypes() {
         const response = await axios.get(`${apiUrl}/rooms/types`)